@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.LLL_Result;
+
+import static com.evolvedbinary.j8fu.fsm.StressFSM.StressEvent.X;
+import static com.evolvedbinary.j8fu.fsm.StressFSM.StressEvent.Y;
+import static com.evolvedbinary.j8fu.fsm.StressFSM.StressState.A;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two threads concurrently process different events whose
+ * transitions do not commute. The outcome must match one of the
+ * two serial orderings, i.e. neither transition may be calculated
+ * from a stale state.
+ */
+public class ConflictingProcess {
+
+    abstract static class Base {
+        final FSM<StressFSM.StressState, StressFSM.StressEvent> fsm;
+
+        Base(final FSMEngine engine) {
+            this.fsm = engine.create(A, StressFSM.TRANSITIONS);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "B, D, D", expect = ACCEPTABLE, desc = "X then Y")
+    @Outcome(id = "E, C, E", expect = ACCEPTABLE, desc = "Y then X")
+    @Outcome(expect = FORBIDDEN, desc = "A transition was calculated from a stale state")
+    @State
+    public static class Atomic extends Base {
+        public Atomic() {
+            super(FSMEngine.ATOMIC);
+        }
+
+        @Actor
+        public void actor1(final LLL_Result r) {
+            r.r1 = fsm.process(X);
+        }
+
+        @Actor
+        public void actor2(final LLL_Result r) {
+            r.r2 = fsm.process(Y);
+        }
+
+        @Arbiter
+        public void arbiter(final LLL_Result r) {
+            r.r3 = fsm.getCurrentState();
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "B, D, D", expect = ACCEPTABLE, desc = "X then Y")
+    @Outcome(id = "E, C, E", expect = ACCEPTABLE, desc = "Y then X")
+    @Outcome(expect = FORBIDDEN, desc = "A transition was calculated from a stale state")
+    @State
+    public static class Blocking extends Base {
+        public Blocking() {
+            super(FSMEngine.BLOCKING);
+        }
+
+        @Actor
+        public void actor1(final LLL_Result r) {
+            r.r1 = fsm.process(X);
+        }
+
+        @Actor
+        public void actor2(final LLL_Result r) {
+            r.r2 = fsm.process(Y);
+        }
+
+        @Arbiter
+        public void arbiter(final LLL_Result r) {
+            r.r3 = fsm.getCurrentState();
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "B, D, D", expect = ACCEPTABLE, desc = "X then Y")
+    @Outcome(id = "E, C, E", expect = ACCEPTABLE, desc = "Y then X")
+    @Outcome(expect = FORBIDDEN, desc = "A transition was calculated from a stale state")
+    @State
+    public static class BlockingOptimistic extends Base {
+        public BlockingOptimistic() {
+            super(FSMEngine.BLOCKING_OPTIMISTIC);
+        }
+
+        @Actor
+        public void actor1(final LLL_Result r) {
+            r.r1 = fsm.process(X);
+        }
+
+        @Actor
+        public void actor2(final LLL_Result r) {
+            r.r2 = fsm.process(Y);
+        }
+
+        @Arbiter
+        public void arbiter(final LLL_Result r) {
+            r.r3 = fsm.getCurrentState();
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "B, D, D", expect = ACCEPTABLE, desc = "X then Y")
+    @Outcome(id = "E, C, E", expect = ACCEPTABLE, desc = "Y then X")
+    @Outcome(expect = FORBIDDEN, desc = "A transition was calculated from a stale state")
+    @State
+    public static class Async extends Base {
+        public Async() {
+            super(FSMEngine.ASYNC);
+        }
+
+        @Actor
+        public void actor1(final LLL_Result r) {
+            r.r1 = fsm.process(X);
+        }
+
+        @Actor
+        public void actor2(final LLL_Result r) {
+            r.r2 = fsm.process(Y);
+        }
+
+        @Arbiter
+        public void arbiter(final LLL_Result r) {
+            r.r3 = fsm.getCurrentState();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The thread-safe {@link FSM} implementations which are
+ * stress tested by the jcstress tests in this package.
+ *
+ * New implementations should be added here, and a nested
+ * test class added to each of the tests.
+ */
+enum FSMEngine {
+    ATOMIC {
+        @Override
+        <S extends Enum<S>, E extends Enum<E>> FSM<S, E> create(final S initialState, final EventProcessor<S, E> eventProcessor) {
+            return new AtomicFSM<>(initialState, eventProcessor);
+        }
+    },
+    BLOCKING {
+        @Override
+        <S extends Enum<S>, E extends Enum<E>> FSM<S, E> create(final S initialState, final EventProcessor<S, E> eventProcessor) {
+            return new BlockingFSM<>(false, initialState, eventProcessor);
+        }
+    },
+    BLOCKING_OPTIMISTIC {
+        @Override
+        <S extends Enum<S>, E extends Enum<E>> FSM<S, E> create(final S initialState, final EventProcessor<S, E> eventProcessor) {
+            return new BlockingFSM<>(true, initialState, eventProcessor);
+        }
+    },
+    ASYNC {
+        @Override
+        <S extends Enum<S>, E extends Enum<E>> FSM<S, E> create(final S initialState, final EventProcessor<S, E> eventProcessor) {
+            return new AsyncFSM<>(initialState, eventProcessor, ForkJoinPool.commonPool());
+        }
+    };
+
+    abstract <S extends Enum<S>, E extends Enum<E>> FSM<S, E> create(final S initialState, final EventProcessor<S, E> eventProcessor);
+}
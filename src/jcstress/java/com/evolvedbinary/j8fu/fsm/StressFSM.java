@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import static com.evolvedbinary.j8fu.fsm.StressFSM.StressEvent.*;
+import static com.evolvedbinary.j8fu.fsm.StressFSM.StressState.*;
+import static com.evolvedbinary.j8fu.fsm.TransitionTable.transitionTable;
+
+/**
+ * The states, events, and transition table used by the jcstress tests.
+ *
+ * The transitions are chosen so that every serial ordering of
+ * two concurrent events produces a distinct outcome:
+ *
+ * {@code
+ *  (S0, NEXT) -> S1
+ *  (S1, NEXT) -> S2
+ *  (S2, NEXT) -> S3
+ *
+ *  (A, X) -> B     (B, Y) -> D
+ *  (A, Y) -> C     (C, X) -> E
+ * }
+ */
+final class StressFSM {
+
+    enum StressState {
+        S0, S1, S2, S3,
+        A, B, C, D, E
+    }
+
+    enum StressEvent {
+        NEXT,
+        X,
+        Y
+    }
+
+    @SuppressWarnings("unchecked")
+    static final TransitionTable<StressState, StressEvent> TRANSITIONS = transitionTable(StressState.class, StressEvent.class)
+            .when(S0).on(NEXT).switchTo(S1)
+                .on(NEXT).switchTo(S2)
+                    .on(NEXT).switchTo(S3)
+            .when(A).on(X).switchTo(B)
+                .on(Y).switchTo(D)
+            .when(A).on(Y).switchTo(C)
+                .on(X).switchTo(E)
+            .build();
+
+    private StressFSM() {
+    }
+}
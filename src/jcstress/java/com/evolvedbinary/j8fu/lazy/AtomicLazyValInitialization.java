@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZI_Result;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two threads race to initialize an {@link AtomicLazyVal}. Both
+ * must see the same value, and for {@link InitializationPolicy#SYNCHRONIZED}
+ * the initializer must be invoked exactly once.
+ */
+public class AtomicLazyValInitialization {
+
+    abstract static class Base {
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicLazyVal<Object> lazyVal;
+        Object v1;
+        Object v2;
+
+        Base(final InitializationPolicy policy) {
+            this.lazyVal = new AtomicLazyVal<>(policy, () -> {
+                invocations.incrementAndGet();
+                return new Object();
+            });
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "true, true, 1", expect = ACCEPTABLE, desc = "Initialized exactly once")
+    @Outcome(expect = FORBIDDEN, desc = "Initialized more than once, or the threads saw different values")
+    @State
+    public static class Synchronized extends Base {
+        public Synchronized() {
+            super(InitializationPolicy.SYNCHRONIZED);
+        }
+
+        @Actor
+        public void actor1() {
+            v1 = lazyVal.get();
+        }
+
+        @Actor
+        public void actor2() {
+            v2 = lazyVal.get();
+        }
+
+        @Arbiter
+        public void arbiter(final ZZI_Result r) {
+            r.r1 = v1 == v2;
+            r.r2 = lazyVal.isInitialized();
+            r.r3 = invocations.get();
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "true, true, 1", expect = ACCEPTABLE, desc = "Initialized once")
+    @Outcome(id = "true, true, 2", expect = ACCEPTABLE, desc = "Both threads invoked the initializer, but only one value was published")
+    @Outcome(expect = FORBIDDEN, desc = "The threads saw different values")
+    @State
+    public static class Publication extends Base {
+        public Publication() {
+            super(InitializationPolicy.PUBLICATION);
+        }
+
+        @Actor
+        public void actor1() {
+            v1 = lazyVal.get();
+        }
+
+        @Actor
+        public void actor2() {
+            v2 = lazyVal.get();
+        }
+
+        @Arbiter
+        public void arbiter(final ZZI_Result r) {
+            r.r1 = v1 == v2;
+            r.r2 = lazyVal.isInitialized();
+            r.r3 = invocations.get();
+        }
+    }
+}
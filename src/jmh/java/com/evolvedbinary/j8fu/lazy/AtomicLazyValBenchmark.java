@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the steady-state cost of {@link AtomicLazyVal#get()}
+ * for each {@link InitializationPolicy}, i.e. after the
+ * value has been initialized.
+ *
+ * {@link LazyVal} is included as an unsynchronized baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AtomicLazyValBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class AtomicLazyValState {
+        @Param({"SYNCHRONIZED", "PUBLICATION", "NONE"})
+        public InitializationPolicy policy;
+
+        private AtomicLazyVal<Object> atomicLazyVal;
+
+        @Setup
+        public void setup() {
+            atomicLazyVal = new AtomicLazyVal<>(policy, Object::new);
+            atomicLazyVal.get();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LazyValState {
+        private LazyVal<Object> lazyVal;
+
+        @Setup
+        public void setup() {
+            lazyVal = new LazyVal<>(Object::new);
+            lazyVal.get();
+        }
+    }
+
+    @Benchmark
+    public Object atomicLazyVal(final AtomicLazyValState state) {
+        return state.atomicLazyVal.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object atomicLazyValContended(final AtomicLazyValState state) {
+        return state.atomicLazyVal.get();
+    }
+
+    @Benchmark
+    public Object lazyValBaseline(final LazyValState state) {
+        return state.lazyVal.get();
+    }
+}
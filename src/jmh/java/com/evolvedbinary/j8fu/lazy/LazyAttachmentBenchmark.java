@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a hit in {@link LazyAttachment#get(Object)}.
+ *
+ * {@link LazyVal} and a {@link ConcurrentHashMap} side table
+ * are included as baselines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyAttachmentBenchmark {
+    private static final int KEYS = 1024;
+
+    private Object[] keys;
+    private LazyAttachment<Object, Object> attachment;
+    private Map<Object, Object> sideTable;
+    private LazyVal<Object> lazyVal;
+
+    @Setup
+    public void setup() {
+        keys = new Object[KEYS];
+        attachment = new LazyAttachment<>(key -> new Object());
+        sideTable = new ConcurrentHashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = new Object();
+            attachment.get(keys[i]);
+            sideTable.computeIfAbsent(keys[i], key -> new Object());
+        }
+        lazyVal = new LazyVal<>(Object::new);
+        lazyVal.get();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (KEYS - 1);
+        }
+    }
+
+    @Benchmark
+    public Object lazyAttachment(final Cursor cursor) {
+        return attachment.get(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object lazyAttachmentContended(final Cursor cursor) {
+        return attachment.get(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public Object concurrentHashMapBaseline(final Cursor cursor) {
+        return sideTable.computeIfAbsent(keys[cursor.next()], key -> new Object());
+    }
+
+    @Benchmark
+    public Object lazyValBaseline() {
+        return lazyVal.get();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import com.evolvedbinary.j8fu.Either;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A thread-safe implementation of {@link FSM} which processes
+ * events asynchronously, see {@link #processAsync(Enum)}.
+ *
+ * Events for each FSM are processed one at a time, in the order
+ * in which they were submitted, by a serial executor which is
+ * layered over a shared {@link Executor}. This allows many FSMs
+ * to be multiplexed onto a few threads, and the calling thread
+ * never takes a lock.
+ *
+ * Note that dependent stages of the futures returned by
+ * {@link #processAsync(Enum)} which are not themselves asynchronous,
+ * execute on the thread which processed the event, and so delay
+ * further events for this FSM; long running dependent stages should
+ * be added with the {@code *Async} methods of {@link CompletableFuture}.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class AsyncFSM<State extends Enum<State>, Event extends Enum<Event>> extends FSM<State, Event> {
+
+    private final SerialExecutor serialExecutor;
+    private volatile State currentState;
+
+    /**
+     * @param initialState The initial state of the FSM
+     * @param eventProcessor An Event Processor which is used to manage state transitions
+     * @param executor The (possibly shared) executor on which events will be processed
+     */
+    public AsyncFSM(final State initialState, final EventProcessor<State, Event> eventProcessor, final Executor executor) {
+        super(eventProcessor);
+        this.currentState = initialState;
+        this.serialExecutor = new SerialExecutor(executor);
+    }
+
+    /**
+     * Get the current state.
+     *
+     * The current state does not reflect any events which
+     * have been submitted but not yet processed.
+     *
+     * @return The current state
+     */
+    @Override
+    public State getCurrentState() {
+        return currentState;
+    }
+
+    /**
+     * Process an event against the current state, and wait for the result.
+     *
+     * This blocks the calling thread, and so must not be called from a stage
+     * which depends on a future returned by {@link #processAsync(Enum)}
+     * of the same FSM; see {@link #processAsync(Enum)}.
+     *
+     * @param event The event to act on in the current state
+     * @return The state after the event is processed, this may be a new state
+     *   or the same state if there was no change
+     * @throws IllegalStateException if the {@link EventProcessor} determines that
+     *   the Event is invalid for the current state.
+     */
+    @Override
+    public State process(final Event event) throws IllegalStateException {
+        try {
+            return processAsync(event).join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Process an event against the state of the FSM after all previously
+     * submitted events have been processed.
+     *
+     * @param event The event to act on
+     * @return A future which is completed with the state after the event is processed,
+     *   or completed exceptionally with an {@link IllegalStateException} if the
+     *   {@link EventProcessor} determines that the Event is invalid for the state.
+     * @throws RejectedExecutionException if the underlying executor rejects
+     *   the task; any events which were already queued are then
+     *   completed exceptionally with the same exception
+     */
+    public CompletableFuture<State> processAsync(final Event event) {
+        final EventTask task = new EventTask(event);
+        serialExecutor.execute(task);
+        return task.future;
+    }
+
+    /**
+     * Processes an event, completing its future with the result.
+     */
+    private final class EventTask implements Runnable, SerialExecutor.Rejectable {
+        private final Event event;
+        private final CompletableFuture<State> future = new CompletableFuture<>();
+
+        EventTask(final Event event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            final Either<IllegalStateException, State> result;
+            try {
+                result = eventProcessor.apply(currentState, event);
+            } catch (final RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+
+            if (result.isLeft()) {
+                future.completeExceptionally(result.left().get());
+            } else {
+                final State newState = result.right().get();
+                // check if 'ignore(...)' was specified, i.e. there is no state transition to make
+                if (newState != currentState) {
+                    currentState = newState;
+                }
+                future.complete(newState);
+            }
+        }
+
+        @Override
+        public void rejected(final RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
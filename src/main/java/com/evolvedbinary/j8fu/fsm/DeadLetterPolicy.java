@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.j8fu.function.TriConsumer;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RejectionPolicy} which counts rejected events by
+ * {@link RejectionCode}, and optionally routes them to a dead-letter
+ * consumer, before delegating to another rejection policy.
+ *
+ * By default the delegate policy is {@link RejectionPolicy#ignoring()},
+ * which means that rejected events are reported without any exception
+ * being constructed or thrown.
+ *
+ * @param <State> An Enum which represents the possible states of the FSM
+ * @param <Event> An Enum which represents all possible events which trigger
+ *   state transitions
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class DeadLetterPolicy<State extends Enum<State>, Event extends Enum<Event>> implements RejectionPolicy<State, Event> {
+    private final TriConsumer<RejectionCode, State, Event> deadLetterConsumer;
+    private final RejectionPolicy<State, Event> delegate;
+    private final LongAdder[] rejected;
+
+    /**
+     * @param deadLetterConsumer A consumer which receives each rejected event, or null
+     *   if rejected events should only be counted
+     * @param delegate The policy which determines the outcome of a rejected event
+     */
+    public DeadLetterPolicy(final TriConsumer<RejectionCode, State, Event> deadLetterConsumer,
+            final RejectionPolicy<State, Event> delegate) {
+        this.deadLetterConsumer = deadLetterConsumer;
+        this.delegate = delegate;
+        this.rejected = new LongAdder[RejectionCode.values().length];
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Similar to {@link #DeadLetterPolicy(TriConsumer, RejectionPolicy)}
+     * where the {@code delegate} is {@link RejectionPolicy#ignoring()}.
+     *
+     * @param deadLetterConsumer A consumer which receives each rejected event, or null
+     *   if rejected events should only be counted
+     */
+    public DeadLetterPolicy(final TriConsumer<RejectionCode, State, Event> deadLetterConsumer) {
+        this(deadLetterConsumer, RejectionPolicy.ignoring());
+    }
+
+    @Override
+    public Either<IllegalStateException, State> reject(final RejectionCode code, final State currentState, final Event event) {
+        rejected[code.ordinal()].increment();
+        if (deadLetterConsumer != null) {
+            deadLetterConsumer.accept(code, currentState, event);
+        }
+        return delegate.reject(code, currentState, event);
+    }
+
+    /**
+     * Get the number of events which have been rejected for a reason.
+     *
+     * @param code the reason for rejection
+     *
+     * @return the number of rejected events
+     */
+    public long getRejectedCount(final RejectionCode code) {
+        return rejected[code.ordinal()].sum();
+    }
+
+    /**
+     * Get the total number of events which have been rejected.
+     *
+     * @return the number of rejected events
+     */
+    public long getRejectedCount() {
+        long count = 0;
+        for (final LongAdder adder : rejected) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Resets the counts of rejected events to zero.
+     */
+    public void resetCounts() {
+        for (final LongAdder adder : rejected) {
+            adder.reset();
+        }
+    }
+}
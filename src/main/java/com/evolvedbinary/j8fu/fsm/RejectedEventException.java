@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+/**
+ * A stackless {@link IllegalStateException} which signals
+ * that an Event was rejected, see {@link RejectionPolicy#stackless()}.
+ *
+ * The exception does not capture a stack trace or details of
+ * the rejected state or event, and so is cheap to raise; its message
+ * is shared by all rejections with the same {@link RejectionCode}.
+ * If you need those details then consider a {@link DeadLetterPolicy}.
+ *
+ * A new instance is raised for each rejection, rather than sharing
+ * an instance, as a shared instance would still accumulate the
+ * suppressed exceptions and stack traces set on it by callers.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+public final class RejectedEventException extends IllegalStateException {
+    private static final long serialVersionUID = -6093117325880931826L;
+
+    private static final String[] MESSAGES;
+    static {
+        final RejectionCode[] codes = RejectionCode.values();
+        MESSAGES = new String[codes.length];
+        for (final RejectionCode code : codes) {
+            MESSAGES[code.ordinal()] = "Event rejected: " + code.name();
+        }
+    }
+
+    private final RejectionCode code;
+
+    private RejectedEventException(final RejectionCode code) {
+        super(MESSAGES[code.ordinal()]);
+        this.code = code;
+    }
+
+    /**
+     * Get an exception for a rejection code.
+     *
+     * @param code the rejection code
+     *
+     * @return a new stackless exception for the {@code code}
+     */
+    public static RejectedEventException of(final RejectionCode code) {
+        return new RejectedEventException(code);
+    }
+
+    /**
+     * Get the reason that the Event was rejected.
+     *
+     * @return the rejection code
+     */
+    public RejectionCode getCode() {
+        return code;
+    }
+
+    /**
+     * Does not fill in the stack trace, as
+     * stack traces are expensive to capture.
+     *
+     * @return this exception
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import com.evolvedbinary.j8fu.Either;
+
+/**
+ * A Rejection Policy determines what an {@link EventProcessor}
+ * such as {@link TransitionTable} does when it receives an Event
+ * for which there is no known state transition.
+ *
+ * Standard policies are available from {@link #throwing()},
+ * {@link #ignoring()}, and {@link #stackless()}, see
+ * also {@link DeadLetterPolicy}.
+ *
+ * @param <State> An Enum which represents the possible states of the FSM
+ * @param <Event> An Enum which represents all possible events which trigger
+ *   state transitions
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@FunctionalInterface
+public interface RejectionPolicy<State extends Enum<State>, Event extends Enum<Event>> {
+
+    /**
+     * Called when an Event is rejected.
+     *
+     * @param code the reason that the event was rejected
+     * @param currentState the current state of the FSM
+     * @param event the rejected event
+     *
+     * @return Either an {@link IllegalStateException} which the FSM will throw,
+     *   otherwise the state that the FSM should be in after the event
+     */
+    Either<IllegalStateException, State> reject(final RejectionCode code, final State currentState, final Event event);
+
+    /**
+     * A policy which constructs a new {@link IllegalStateException}
+     * describing the current state and rejected event.
+     *
+     * This is the default policy.
+     *
+     * @return the rejection policy
+     *
+     * @param <State> An Enum which represents the possible states of the FSM
+     * @param <Event> An Enum which represents all possible events which trigger
+     *   state transitions
+     */
+    @SuppressWarnings("unchecked")
+    static <State extends Enum<State>, Event extends Enum<Event>> RejectionPolicy<State, Event> throwing() {
+        return (RejectionPolicy<State, Event>) StandardRejectionPolicies.THROWING;
+    }
+
+    /**
+     * A policy which ignores the rejected event, i.e. the FSM
+     * remains in its current state.
+     *
+     * @return the rejection policy
+     *
+     * @param <State> An Enum which represents the possible states of the FSM
+     * @param <Event> An Enum which represents all possible events which trigger
+     *   state transitions
+     */
+    @SuppressWarnings("unchecked")
+    static <State extends Enum<State>, Event extends Enum<Event>> RejectionPolicy<State, Event> ignoring() {
+        return (RejectionPolicy<State, Event>) StandardRejectionPolicies.IGNORING;
+    }
+
+    /**
+     * A policy which raises a new stackless {@link RejectedEventException}
+     * for each rejection, so that rejecting an event does not capture a
+     * stack trace or build a message; the message of each {@link RejectionCode}
+     * is precomputed.
+     *
+     * @return the rejection policy
+     *
+     * @param <State> An Enum which represents the possible states of the FSM
+     * @param <Event> An Enum which represents all possible events which trigger
+     *   state transitions
+     */
+    @SuppressWarnings("unchecked")
+    static <State extends Enum<State>, Event extends Enum<Event>> RejectionPolicy<State, Event> stackless() {
+        return (RejectionPolicy<State, Event>) StandardRejectionPolicies.STACKLESS;
+    }
+}
+
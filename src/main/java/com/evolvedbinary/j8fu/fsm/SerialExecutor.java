@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link Executor} which runs tasks one at a time, in submission
+ * order, on an underlying (typically shared) executor.
+ *
+ * Many serial executors may be multiplexed onto a small pool of threads,
+ * as a serial executor only occupies a thread of the underlying executor
+ * whilst it has tasks to run. Submitting a task does not take a lock.
+ *
+ * Tasks are run in batches of at most {@link #MAX_BATCH_SIZE}, after which
+ * the serial executor yields its thread so that other serial executors
+ * sharing the underlying executor are not starved.
+ *
+ * If the underlying executor rejects the serial executor, then nothing
+ * would ever run the queued tasks, so all queued tasks are removed, and
+ * those which are {@link Rejectable} are notified of the rejection.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+final class SerialExecutor implements Executor {
+    static final int MAX_BATCH_SIZE = 64;
+
+    /**
+     * A task which is notified if it is removed from the
+     * queue because the underlying executor rejected it.
+     */
+    interface Rejectable {
+
+        /**
+         * Called instead of running the task.
+         *
+         * @param e the rejection by the underlying executor
+         */
+        void rejected(RejectedExecutionException e);
+    }
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drain = this::drain;
+
+    /**
+     * @param executor the underlying executor which provides the threads
+     */
+    SerialExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a task to run after all previously submitted tasks.
+     *
+     * @param task the task to run
+     *
+     * @throws RejectedExecutionException if the underlying executor
+     *   rejects this serial executor, in which case the task will not be run,
+     *   and any other queued tasks are also removed
+     */
+    @Override
+    public void execute(final Runnable task) {
+        tasks.offer(task);
+        final RejectedExecutionException rejected = schedule(task);
+        if (rejected != null) {
+            throw rejected;
+        }
+    }
+
+    /**
+     * Schedules a drain of the queue, unless one is already scheduled.
+     *
+     * @param submitted the task being submitted by the caller, which is
+     *   not notified if it is rejected, as the caller throws the rejection
+     *
+     * @return the rejection, if the underlying executor rejected the drain
+     *   whilst the {@code submitted} task was queued, otherwise null
+     */
+    private RejectedExecutionException schedule(final Runnable submitted) {
+        RejectedExecutionException submittedRejected = null;
+        while (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drain);
+                return submittedRejected;
+            } catch (final RejectedExecutionException e) {
+                if (rejectQueued(e, submitted)) {
+                    submittedRejected = e;
+                }
+                scheduled.set(false);
+
+                // tasks queued whilst we held the schedule were left for us to schedule
+                if (tasks.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        return submittedRejected;
+    }
+
+    /**
+     * Removes all queued tasks, notifying those which are {@link Rejectable}.
+     *
+     * @return true if the {@code submitted} task was removed
+     */
+    private boolean rejectQueued(final RejectedExecutionException e, final Runnable submitted) {
+        boolean submittedRemoved = false;
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            if (task == submitted) {
+                submittedRemoved = true;
+            } else if (task instanceof Rejectable) {
+                ((Rejectable) task).rejected(e);
+            }
+        }
+        return submittedRemoved;
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+                final Runnable task = tasks.poll();
+                if (task == null) {
+                    break;
+                }
+                task.run();
+            }
+        } finally {
+            scheduled.set(false);
+
+            // a task may have been queued after our last poll but before we were unscheduled
+            if (!tasks.isEmpty()) {
+                schedule(null);
+            }
+        }
+    }
+}
@@ -43,7 +43,7 @@ import java.util.EnumMap;
 public class TransitionTable<State extends Enum<State>, Event extends Enum<Event>>
         implements EventProcessor<State, Event> {
     private final EnumMap<State, EnumMap<Event, State>> transition;
-    private final boolean ignoreUnknownEvents;
+    private final RejectionPolicy<State, Event> rejectionPolicy;
 
     /**
      * Constructs a Transition Table
@@ -52,13 +52,27 @@ public class TransitionTable<State extends Enum<State>, Event extends Enum<Event
      *
      * @param ignoreUnknownEvents When true if we receive an event in a state
      *   for which there is no known state transition we just return the
-     *   current state, else if false, we throw
-     *   an {@link IllegalStateException}
+     *   current state, else if false, we return
+     *   an {@link IllegalStateException}, see {@link RejectionPolicy#throwing()}
      * @param transitionTable A map of maps describing the state transitions
      *   i.e. {@code currentState -> (event -> newState)}
      */
     public TransitionTable(final boolean ignoreUnknownEvents, final EnumMap<State, EnumMap<Event, State>> transitionTable) {
-        this.ignoreUnknownEvents = ignoreUnknownEvents;
+        this(ignoreUnknownEvents ? RejectionPolicy.ignoring() : RejectionPolicy.throwing(), transitionTable);
+    }
+
+    /**
+     * Constructs a Transition Table
+     *
+     * See also {@link #transitionTable(Class, Class)}
+     *
+     * @param rejectionPolicy Determines what happens if we receive an event
+     *   in a state for which there is no known state transition
+     * @param transitionTable A map of maps describing the state transitions
+     *   i.e. {@code currentState -> (event -> newState)}
+     */
+    public TransitionTable(final RejectionPolicy<State, Event> rejectionPolicy, final EnumMap<State, EnumMap<Event, State>> transitionTable) {
+        this.rejectionPolicy = rejectionPolicy;
         this.transition = transitionTable;
     }
 
@@ -80,19 +94,13 @@ public class TransitionTable<State extends Enum<State>, Event extends Enum<Event
     @Override
     public Either<IllegalStateException, State> apply(final State currentState, final Event event) {
         final EnumMap<Event, State> transitions = transition.get(currentState);
-        if(!ignoreUnknownEvents) {
-            if (transitions == null) {
-                throw new IllegalStateException("No known transitions from current state '" + currentState.name() + "'");
-            }
+        if (transitions == null) {
+            return rejectionPolicy.reject(RejectionCode.NO_TRANSITIONS_FROM_STATE, currentState, event);
         }
 
         final State newState = transitions.get(event);
         if (newState == null) {
-            if(!ignoreUnknownEvents) {
-                throw new IllegalStateException("No known transition from current state '" + currentState.name() + "' for event '" + event.name() + "'");
-            } else {
-                return Either.Right(currentState);
-            }
+            return rejectionPolicy.reject(RejectionCode.NO_TRANSITION_FOR_EVENT, currentState, event);
         } else {
             return Either.Right(newState);
         }
@@ -252,6 +260,19 @@ public class TransitionTable<State extends Enum<State>, Event extends Enum<Event
                 return new TransitionTable<>(ignoreUnknownEvents, transitionTable);
             }
 
+            /**
+             * Builds the {@link TransitionTable}
+             *
+             * @param rejectionPolicy Determines what the {@link TransitionTable}
+             *   does if it receives an event in a state for which there is
+             *   no known state transition
+             *
+             * @return The transition table
+             */
+            public TransitionTable<State, Event> build(final RejectionPolicy<State, Event> rejectionPolicy) {
+                return new TransitionTable<>(rejectionPolicy, transitionTable);
+            }
+
             /**
              * Builds the {@link TransitionTable}
              *
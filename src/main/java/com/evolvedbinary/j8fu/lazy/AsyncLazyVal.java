@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An Asynchronous Lazy Value (which is thread safe).
+ *
+ * The initializer is invoked once on an {@link Executor}, either
+ * eagerly when the lazy value is constructed, or on the first call to
+ * {@link #get()}, {@link #getNow(Object)}, or {@link #getAsync()}.
+ *
+ * All callers share the result of the single invocation of the
+ * initializer. {@link #get()} only blocks whilst the value
+ * is still pending.
+ *
+ * @param <T> The type of the lazy value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class AsyncLazyVal<T> {
+    private final Supplier<T> initializer;
+    private final Executor executor;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    /**
+     * Similar to {@link #AsyncLazyVal(boolean, Supplier, Executor)}
+     * where {@code eager} is false.
+     *
+     * @param initializer A function which provides the value.
+     * @param executor The executor on which to invoke the initializer.
+     */
+    public AsyncLazyVal(final Supplier<T> initializer, final Executor executor) {
+        this(false, initializer, executor);
+    }
+
+    /**
+     * @param eager true if the initializer should be started immediately,
+     *   false if it should be started on first access.
+     * @param initializer A function which provides the value.
+     * @param executor The executor on which to invoke the initializer.
+     */
+    public AsyncLazyVal(final boolean eager, final Supplier<T> initializer, final Executor executor) {
+        this.initializer = initializer;
+        this.executor = executor;
+        if (eager) {
+            start();
+        }
+    }
+
+    /**
+     * Starts initializing the value, if it has not already been started.
+     *
+     * @return this
+     */
+    public AsyncLazyVal<T> start() {
+        if (!started.get() && started.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        future.complete(initializer.get());
+                    } catch (final Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets the value of the lazy value, waiting
+     * for it if it is still pending.
+     *
+     * @return The value of the lazy value
+     *
+     * @throws CompletionException if the initializer threw an exception
+     */
+    public T get() {
+        start();
+        return future.join();
+    }
+
+    /**
+     * Gets the value of the lazy value if it is available,
+     * without waiting.
+     *
+     * @param valueIfPending the value to return if the lazy value is still pending
+     *
+     * @return The value of the lazy value, or {@code valueIfPending}
+     *
+     * @throws CompletionException if the initializer threw an exception
+     */
+    public T getNow(final T valueIfPending) {
+        start();
+        return future.getNow(valueIfPending);
+    }
+
+    /**
+     * Gets a future of the value of the lazy value.
+     *
+     * Each call returns a new future which depends on the single
+     * shared initialization, so cancelling or completing the returned
+     * future does not affect any other caller.
+     *
+     * @return a future of the value
+     */
+    public CompletableFuture<T> getAsync() {
+        start();
+        return future.thenApply(Function.identity());
+    }
+
+    /**
+     * Returns true if the initializer has been started.
+     *
+     * @return true if the initializer has been started.
+     */
+    public boolean isStarted() {
+        return started.get();
+    }
+
+    /**
+     * Returns true if the lazy value has been successfully initialized.
+     *
+     * @return true if the lazy value has been initialized.
+     */
+    public boolean isInitialized() {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+}
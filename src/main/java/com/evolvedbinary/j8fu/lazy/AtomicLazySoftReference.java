@@ -28,8 +28,6 @@ package com.evolvedbinary.j8fu.lazy;
 
 import net.jcip.annotations.ThreadSafe;
 
-import java.lang.ref.SoftReference;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 /**
@@ -40,20 +38,37 @@ import java.util.function.Supplier;
  * if the soft reference has been cleared; see the description of {@link #get()}
  * for further details.
  *
+ * Retrieving a value which has not been cleared is lock-free and
+ * does not allocate. When the value has been cleared, only one thread
+ * re-initializes it, any other threads which also find it cleared
+ * wait for, and then receive, that thread's result.
+ *
  * @param <T> The type of the lazily soft referenced value.
  *
  * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
  */
 @ThreadSafe
 public class AtomicLazySoftReference<T> {
+    private static final LazyStats STATS = LazyInstrumentation.ENABLED ? LazyInstrumentation.stats(AtomicLazySoftReference.class) : null;
+
     private final Supplier<T> initializer;
-    private final AtomicReference<SoftReference<T>> ref = new AtomicReference<>();
+    private final ReclamationStrategy reclamationStrategy;
+    private volatile Reclaimable<T> ref = null;
 
     /**
      * @param initializer A function which provides the value.
      */
     public AtomicLazySoftReference(final Supplier<T> initializer) {
+        this(initializer, ReclamationStrategy.soft());
+    }
+
+    /**
+     * @param initializer A function which provides the value.
+     * @param reclamationStrategy The strategy which decides when the value may be reclaimed.
+     */
+    public AtomicLazySoftReference(final Supplier<T> initializer, final ReclamationStrategy reclamationStrategy) {
         this.initializer = initializer;
+        this.reclamationStrategy = reclamationStrategy;
     }
 
     /**
@@ -70,7 +85,52 @@ public class AtomicLazySoftReference<T> {
      * @return The value of the lazy value
      */
     public T get() {
-        return ref.updateAndGet(prev -> prev != null ? (prev.get() != null ? prev : new SoftReference<>(initializer.get())) : new SoftReference<>(initializer.get())).get();
+        final Reclaimable<T> current = ref;
+        if (current != null) {
+            final T val = current.get();
+            if (val != null) {
+                if (LazyInstrumentation.ENABLED) {
+                    STATS.hit();
+                }
+                return val;
+            }
+        }
+
+        if (LazyInstrumentation.ENABLED) {
+            STATS.waiterArrived();
+            try {
+                return initialize();
+            } finally {
+                STATS.waiterLeft();
+            }
+        }
+        return initialize();
+    }
+
+    /**
+     * Initializes, or re-initializes, the value unless
+     * another thread has already done so whilst we
+     * were waiting for the lock.
+     *
+     * @return The value of the lazy value
+     */
+    private synchronized T initialize() {
+        final Reclaimable<T> current = ref;
+        if (current != null) {
+            final T val = current.get();
+            if (val != null) {
+                if (LazyInstrumentation.ENABLED) {
+                    STATS.collision();
+                }
+                return val;
+            }
+            reclamationStrategy.recomputed();
+        }
+
+        // NOTE: return the local val, as the new reference could be cleared before we read it back
+        final T val = LazyInstrumentation.ENABLED ? STATS.initialize(initializer, current != null) : initializer.get();
+        ref = reclamationStrategy.hold(val);
+        return val;
     }
 
     /**
@@ -79,7 +139,7 @@ public class AtomicLazySoftReference<T> {
      * @return true if the soft reference has been initialized.
      */
     public boolean isInitialized() {
-        return ref.get() != null;
+        return ref != null;
     }
 
     /**
@@ -88,6 +148,7 @@ public class AtomicLazySoftReference<T> {
      * @return true if the soft reference has been cleared.
      */
     public boolean isCleared() {
-        return ref.get() != null && ref.get().get() == null;
+        final Reclaimable<T> current = ref;
+        return current != null && current.get() == null;
     }
 }
@@ -28,13 +28,18 @@ package com.evolvedbinary.j8fu.lazy;
 
 import net.jcip.annotations.ThreadSafe;
 
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Supplier;
 
 /**
  * A Lazy Value (which is thread safe).
  *
  * Will be initialized once on the first call to {@link #get()}.
+ * How threads which race to initialize the value are coordinated
+ * is determined by the {@link InitializationPolicy}.
+ *
+ * A {@code null} value from the initializer is a valid value,
+ * and is cached like any other.
  *
  * @param <T> The type of the lazy value.
  *
@@ -42,13 +47,33 @@ import java.util.function.Supplier;
  */
 @ThreadSafe
 public class AtomicLazyVal<T> {
+    private static final Object UNINITIALIZED = new Object();
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AtomicLazyVal, Object> VAL =
+            AtomicReferenceFieldUpdater.newUpdater(AtomicLazyVal.class, Object.class, "val");
+
+    private static final LazyStats STATS = LazyInstrumentation.ENABLED ? LazyInstrumentation.stats(AtomicLazyVal.class) : null;
+
+    private final InitializationPolicy policy;
     private final Supplier<T> initializer;
-    private final AtomicReference<T> val = new AtomicReference<>();
+    private volatile Object val = UNINITIALIZED;
 
     /**
+     * Similar to {@link #AtomicLazyVal(InitializationPolicy, Supplier)}
+     * where the {@code policy} is {@link InitializationPolicy#PUBLICATION}.
+     *
      * @param initializer A function which provides the value.
      */
     public AtomicLazyVal(final Supplier<T> initializer) {
+        this(InitializationPolicy.PUBLICATION, initializer);
+    }
+
+    /**
+     * @param policy The policy for coordinating threads which race to initialize the value.
+     * @param initializer A function which provides the value.
+     */
+    public AtomicLazyVal(final InitializationPolicy policy, final Supplier<T> initializer) {
+        this.policy = policy;
         this.initializer = initializer;
     }
 
@@ -57,8 +82,62 @@ public class AtomicLazyVal<T> {
      *
      * @return The value of the lazy value
      */
+    @SuppressWarnings("unchecked")
     public T get() {
-        return val.updateAndGet(prev -> prev != null ? prev : initializer.get());
+        final Object v = val;
+        if (v != UNINITIALIZED) {
+            if (LazyInstrumentation.ENABLED) {
+                STATS.hit();
+            }
+            return (T) v;
+        }
+        return initialize();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T initialize() {
+        switch (policy) {
+            case SYNCHRONIZED:
+                if (LazyInstrumentation.ENABLED) {
+                    STATS.waiterArrived();
+                }
+                try {
+                    synchronized (this) {
+                        Object v = val;
+                        if (v == UNINITIALIZED) {
+                            v = callInitializer();
+                            val = v;
+                        } else if (LazyInstrumentation.ENABLED) {
+                            STATS.collision();
+                        }
+                        return (T) v;
+                    }
+                } finally {
+                    if (LazyInstrumentation.ENABLED) {
+                        STATS.waiterLeft();
+                    }
+                }
+
+            case PUBLICATION:
+                final T newVal = callInitializer();
+                if (VAL.compareAndSet(this, UNINITIALIZED, newVal)) {
+                    return newVal;
+                }
+                if (LazyInstrumentation.ENABLED) {
+                    STATS.collision();
+                }
+                return (T) val;
+
+            case NONE:
+            default:
+                final T unsynchronizedVal = callInitializer();
+                val = unsynchronizedVal;
+                return unsynchronizedVal;
+        }
+    }
+
+    private T callInitializer() {
+        return LazyInstrumentation.ENABLED ? STATS.initialize(initializer, false) : initializer.get();
     }
 
     /**
@@ -67,6 +146,15 @@ public class AtomicLazyVal<T> {
      * @return true if the lazy value has been initialized.
      */
     public boolean isInitialized() {
-        return val.get() != null;
+        return val != UNINITIALIZED;
+    }
+
+    /**
+     * Get the policy for coordinating threads which race to initialize the value.
+     *
+     * @return the initialization policy
+     */
+    public InitializationPolicy getPolicy() {
+        return policy;
     }
 }
@@ -27,9 +27,11 @@
 package com.evolvedbinary.j8fu.lazy;
 
 import com.evolvedbinary.j8fu.Either;
+import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 import static com.evolvedbinary.j8fu.Either.valueOrThrow;
@@ -40,6 +42,11 @@ import static com.evolvedbinary.j8fu.Either.valueOrThrow;
  *
  * Will be initialized once on the first call to {@link #get()}.
  *
+ * If initialisation fails, the failure is cached. By default it is cached
+ * forever, otherwise the {@link RetryPolicy} decides for how long. Once the
+ * cached failure expires only one caller re-initializes the lazy value, any
+ * other callers fail fast with the cached failure until it completes.
+ *
  * @param <T> The type of the lazy value.
  * @param <E> The type of an exception that may occur
  *     at initialisation.
@@ -49,14 +56,31 @@ import static com.evolvedbinary.j8fu.Either.valueOrThrow;
 @ThreadSafe
 public class AtomicLazyValE<T, E extends Throwable> {
     private final Supplier<Either<E, T>> initializer;
-    private final AtomicReference<Either<E, T>> val = new AtomicReference<>();
+    private final RetryPolicy retryPolicy;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<Result<E, T>> val = new AtomicReference<>();
 
     /**
      * @param initializer A function which provides the value
      *     or an exception.
      */
     public AtomicLazyValE(final Supplier<Either<E, T>> initializer) {
+        this(initializer, RetryPolicy.never());
+    }
+
+    /**
+     * @param initializer A function which provides the value
+     *     or an exception.
+     * @param retryPolicy The policy for retrying a failed initialisation.
+     */
+    public AtomicLazyValE(final Supplier<Either<E, T>> initializer, final RetryPolicy retryPolicy) {
+        this(initializer, retryPolicy, System::nanoTime);
+    }
+
+    AtomicLazyValE(final Supplier<Either<E, T>> initializer, final RetryPolicy retryPolicy, final LongSupplier nanoClock) {
         this.initializer = initializer;
+        this.retryPolicy = retryPolicy;
+        this.nanoClock = nanoClock;
     }
 
     /**
@@ -64,10 +88,51 @@ public class AtomicLazyValE<T, E extends Throwable> {
      *
      * @return The value of the lazy value
      *
-     * @throws E an exception which occurred during initialisation.
+     * @throws E an exception which occurred during initialisation,
+     *     which may have been cached from an earlier initialisation.
      */
     public T get() throws E {
-        return valueOrThrow(val.updateAndGet(prev -> prev != null ? prev : initializer.get()));
+        while (true) {
+            final Result<E, T> result = val.get();
+            if (result == null) {
+                final Result<E, T> initialized = result(initializer.get(), 0);
+                if (val.compareAndSet(null, initialized)) {
+                    return valueOrThrow(initialized.either);
+                }
+                continue;  // another thread initialized first
+            }
+
+            if (result.either.isRight() || !retryPolicy.isRetryable() || result.retrying
+                    || nanoClock.getAsLong() - result.retryAt < 0) {
+                return valueOrThrow(result.either);
+            }
+
+            // the cached failure has expired, only one thread may retry
+            final Result<E, T> retrying = new Result<>(result.either, result.failures, result.retryAt, true);
+            if (val.compareAndSet(result, retrying)) {
+                return valueOrThrow(retry(result));
+            }
+        }
+    }
+
+    private Either<E, T> retry(final Result<E, T> failed) {
+        Result<E, T> retried = failed;
+        try {
+            retried = result(initializer.get(), failed.failures);
+            return retried.either;
+        } finally {
+            // NOTE: if the initializer threw, restore the previous failure so that it may be retried
+            val.set(retried);
+        }
+    }
+
+    private Result<E, T> result(final Either<E, T> either, final int previousFailures) {
+        if (either.isRight()) {
+            return new Result<>(either, 0, 0, false);
+        }
+        final int failures = previousFailures + 1;
+        final long retryAt = retryPolicy.isRetryable() ? nanoClock.getAsLong() + retryPolicy.backoffNanos(failures) : 0;
+        return new Result<>(either, failures, retryAt, false);
     }
 
     /**
@@ -78,4 +143,19 @@ public class AtomicLazyValE<T, E extends Throwable> {
     public boolean isInitialized() {
         return val.get() != null;
     }
+
+    @Immutable
+    private static final class Result<E, T> {
+        final Either<E, T> either;
+        final int failures;
+        final long retryAt;
+        final boolean retrying;
+
+        Result(final Either<E, T> either, final int failures, final long retryAt, final boolean retrying) {
+            this.either = either;
+            this.failures = failures;
+            this.retryAt = retryAt;
+            this.retrying = retrying;
+        }
+    }
 }
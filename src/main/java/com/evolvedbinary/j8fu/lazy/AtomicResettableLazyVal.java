@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Supplier;
+
+/**
+ * A Resettable Lazy Value (which is thread safe and lock-free).
+ *
+ * Will be initialized on the first call to {@link #get()}, and
+ * re-initialized on the next call to {@link #get()} after it
+ * has been invalidated, either by {@link #invalidate()}, or
+ * by advancing its {@link LazyEpoch}.
+ *
+ * The value is published together with the epoch and generation
+ * that were current when its initialization started; a value is
+ * only returned whilst both are still current. So a value which was
+ * being initialized concurrently with an invalidation is never returned
+ * after that invalidation. Threads which already obtained a value keep
+ * that value, invalidation never modifies it.
+ *
+ * Threads which race to initialize the value may each invoke the
+ * initializer, but only one value is published, similar to
+ * {@link InitializationPolicy#PUBLICATION}.
+ *
+ * @param <T> The type of the lazy value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class AtomicResettableLazyVal<T> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AtomicResettableLazyVal, Snapshot> SNAPSHOT =
+            AtomicReferenceFieldUpdater.newUpdater(AtomicResettableLazyVal.class, Snapshot.class, "snapshot");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<AtomicResettableLazyVal> GENERATION =
+            AtomicLongFieldUpdater.newUpdater(AtomicResettableLazyVal.class, "generation");
+
+    private final LazyEpoch epoch;
+    private final Supplier<T> initializer;
+    private volatile long generation = 0;
+    private volatile Snapshot<T> snapshot = null;
+
+    /**
+     * @param initializer A function which provides the value.
+     */
+    public AtomicResettableLazyVal(final Supplier<T> initializer) {
+        this(new LazyEpoch(), initializer);
+    }
+
+    /**
+     * @param epoch The epoch of the group of lazy values which this belongs to.
+     * @param initializer A function which provides the value.
+     */
+    public AtomicResettableLazyVal(final LazyEpoch epoch, final Supplier<T> initializer) {
+        this.epoch = epoch;
+        this.initializer = initializer;
+    }
+
+    /**
+     * Gets the value of the lazy value.
+     *
+     * @return The value of the lazy value
+     */
+    public T get() {
+        while (true) {
+            final long currentEpoch = epoch.current();
+            final long currentGeneration = generation;
+            final Snapshot<T> current = snapshot;
+            if (current != null && current.isCurrent(currentEpoch, currentGeneration)) {
+                return current.val;
+            }
+
+            final Snapshot<T> initialized = new Snapshot<>(currentEpoch, currentGeneration, initializer.get());
+            if (SNAPSHOT.compareAndSet(this, current, initialized)) {
+                return initialized.val;
+            }
+            // another thread published a value first, check that it is current
+        }
+    }
+
+    /**
+     * Invalidates the lazy value, so that it is
+     * re-initialized on the next call to {@link #get()}.
+     */
+    public void invalidate() {
+        GENERATION.incrementAndGet(this);
+    }
+
+    /**
+     * Returns true if the lazy value has been initialized,
+     * and has not since been invalidated.
+     *
+     * @return true if the lazy value has been initialized.
+     */
+    public boolean isInitialized() {
+        final long currentEpoch = epoch.current();
+        final long currentGeneration = generation;
+        final Snapshot<T> current = snapshot;
+        return current != null && current.isCurrent(currentEpoch, currentGeneration);
+    }
+
+    @Immutable
+    private static final class Snapshot<T> {
+        final long epoch;
+        final long generation;
+        final T val;
+
+        Snapshot(final long epoch, final long generation, final T val) {
+            this.epoch = epoch;
+            this.generation = generation;
+            this.val = val;
+        }
+
+        boolean isCurrent(final long epoch, final long generation) {
+            return this.epoch == epoch && this.generation == generation;
+        }
+    }
+}
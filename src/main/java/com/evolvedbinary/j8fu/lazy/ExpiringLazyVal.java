@@ -0,0 +1,351 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A Lazy Value (which is thread safe) which expires after a time-to-live.
+ *
+ * Will be initialized on the first call to {@link #get()}. Thereafter the
+ * value is reloaded:
+ * <ul>
+ *     <li>ahead of expiry; once the value is within the refresh-ahead
+ *     period of expiring, the next call to {@link #get()} starts a
+ *     background reload and returns the current value.</li>
+ *     <li>after expiry; for up to the max-stale period after expiring, the next
+ *     call to {@link #get()} starts a background reload and returns the
+ *     stale value, i.e. stale-while-revalidate.</li>
+ *     <li>after the max-stale period; {@link #get()} waits for a reload.</li>
+ * </ul>
+ *
+ * At most one reload is in flight at any time, all callers which need
+ * to wait for a reload share it. After a reload fails, {@link #get()} does not
+ * start another background reload until the retry interval has elapsed, so that
+ * a failing initializer is not called again by every caller.
+ *
+ * The time at which a background reload begins is jittered by a random
+ * fraction of the time-to-live, so that many instances which were loaded
+ * at the same time do not all reload at the same time.
+ *
+ * Use {@link #expiringLazyVal(Supplier, long, TimeUnit)} to construct an {@link ExpiringLazyVal}.
+ *
+ * @param <T> The type of the lazy value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class ExpiringLazyVal<T> {
+    private final Supplier<T> initializer;
+    private final Executor executor;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final long maxStaleNanos;
+    private final double jitter;
+    private final long retryIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile Entry<T> entry = null;
+    private volatile long retryAt;
+    private final AtomicReference<CompletableFuture<Entry<T>>> inFlight = new AtomicReference<>();
+
+    private ExpiringLazyVal(final Builder<T> builder) {
+        this.initializer = builder.initializer;
+        this.executor = builder.executor;
+        this.ttlNanos = builder.ttlNanos;
+        this.refreshAheadNanos = builder.refreshAheadNanos;
+        this.maxStaleNanos = builder.maxStaleNanos;
+        this.jitter = builder.jitter;
+        this.retryIntervalNanos = builder.retryIntervalNanos;
+        this.nanoClock = builder.nanoClock;
+        this.retryAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Creates a {@link Builder} for an {@link ExpiringLazyVal}.
+     *
+     * @param initializer A function which provides the value.
+     * @param ttl The time-to-live of the value after it is loaded.
+     * @param unit The unit of {@code ttl}.
+     *
+     * @return the builder
+     *
+     * @param <T> The type of the lazy value.
+     */
+    public static <T> Builder<T> expiringLazyVal(final Supplier<T> initializer, final long ttl, final TimeUnit unit) {
+        return new Builder<>(initializer, unit.toNanos(ttl));
+    }
+
+    /**
+     * Gets the value of the lazy value.
+     *
+     * @return The value of the lazy value, which may be stale
+     *   whilst a background reload is in flight.
+     *
+     * @throws CompletionException if the value had to be
+     *   reloaded, and the initializer threw an exception.
+     */
+    public T get() {
+        final Entry<T> e = entry;
+        if (e != null) {
+            final long now = nanoClock.getAsLong();
+            if (now - e.refreshAt < 0) {
+                return e.value;
+            }
+
+            if (now - (e.expiresAt + maxStaleNanos) < 0) {
+                // back off from starting another reload after a reload has failed
+                if (now - retryAt >= 0) {
+                    load(true);
+                }
+                return e.value;
+            }
+        }
+
+        return load(false).join().value;
+    }
+
+    /**
+     * Starts a reload of the value in the background,
+     * unless a reload is already in flight.
+     *
+     * @return A future which is completed with the reloaded value.
+     */
+    public CompletableFuture<T> refresh() {
+        return load(true).thenApply(e -> e.value);
+    }
+
+    /**
+     * Returns true if the lazy value has been initialized.
+     *
+     * @return true if the lazy value has been initialized.
+     */
+    public boolean isInitialized() {
+        return entry != null;
+    }
+
+    /**
+     * Returns true if the lazy value has been initialized
+     * but has passed its time-to-live.
+     *
+     * @return true if the lazy value is stale.
+     */
+    public boolean isStale() {
+        final Entry<T> e = entry;
+        return e != null && nanoClock.getAsLong() - e.expiresAt >= 0;
+    }
+
+    /**
+     * Gets the in flight load, or starts a new one.
+     *
+     * @param background true if a new load should run on the executor,
+     *   false if it should run on the calling thread.
+     */
+    private CompletableFuture<Entry<T>> load(final boolean background) {
+        while (true) {
+            final CompletableFuture<Entry<T>> existing = inFlight.get();
+            if (existing != null) {
+                return existing;
+            }
+
+            final CompletableFuture<Entry<T>> future = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, future)) {
+                if (background) {
+                    try {
+                        executor.execute(() -> reload(future));
+                    } catch (final RejectedExecutionException e) {
+                        inFlight.compareAndSet(future, null);
+                        future.completeExceptionally(e);
+                    }
+                } else {
+                    reload(future);
+                }
+                return future;
+            }
+        }
+    }
+
+    private void reload(final CompletableFuture<Entry<T>> future) {
+        try {
+            final T value = initializer.get();
+            final long loadedAt = nanoClock.getAsLong();
+            final long expiresAt = loadedAt + ttlNanos;
+            final long jitterNanos = jitter > 0 ? (long) (ThreadLocalRandom.current().nextDouble(jitter) * ttlNanos) : 0;
+            final long refreshAt = Math.max(loadedAt, expiresAt - refreshAheadNanos - jitterNanos);
+            final Entry<T> newEntry = new Entry<>(value, refreshAt, expiresAt);
+            this.entry = newEntry;
+            this.retryAt = loadedAt;
+            inFlight.compareAndSet(future, null);
+            future.complete(newEntry);
+        } catch (final Throwable t) {
+            this.retryAt = nanoClock.getAsLong() + retryIntervalNanos;
+            inFlight.compareAndSet(future, null);
+            future.completeExceptionally(t);
+        }
+    }
+
+    @Immutable
+    private static final class Entry<T> {
+        final T value;
+        final long refreshAt;
+        final long expiresAt;
+
+        Entry(final T value, final long refreshAt, final long expiresAt) {
+            this.value = value;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A builder for an {@link ExpiringLazyVal}, see {@link ExpiringLazyVal#expiringLazyVal(Supplier, long, TimeUnit)}.
+     *
+     * @param <T> The type of the lazy value.
+     */
+    public static class Builder<T> {
+        private final Supplier<T> initializer;
+        private Executor executor = ForkJoinPool.commonPool();
+        private final long ttlNanos;
+        private long refreshAheadNanos = 0;
+        private long maxStaleNanos = 0;
+        private double jitter = 0;
+        private long retryIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder(final Supplier<T> initializer, final long ttlNanos) {
+            this.initializer = initializer;
+            this.ttlNanos = ttlNanos;
+        }
+
+        /**
+         * How long before expiry to start reloading the value in the background.
+         *
+         * @param refreshAhead the refresh-ahead period.
+         * @param unit the unit of {@code refreshAhead}.
+         *
+         * @return this
+         */
+        public Builder<T> refreshAhead(final long refreshAhead, final TimeUnit unit) {
+            this.refreshAheadNanos = unit.toNanos(refreshAhead);
+            return this;
+        }
+
+        /**
+         * How long after expiry a stale value may be returned
+         * whilst it is reloaded in the background.
+         *
+         * @param maxStale the max-stale period.
+         * @param unit the unit of {@code maxStale}.
+         *
+         * @return this
+         */
+        public Builder<T> maxStale(final long maxStale, final TimeUnit unit) {
+            this.maxStaleNanos = unit.toNanos(maxStale);
+            return this;
+        }
+
+        /**
+         * The maximum fraction of the time-to-live by which
+         * to bring forward a background reload.
+         *
+         * @param jitter a fraction between 0 and 1.
+         *
+         * @return this
+         */
+        public Builder<T> jitter(final double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("jitter must be between 0 and 1");
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * How long after a reload fails before {@link ExpiringLazyVal#get()}
+         * may start another background reload.
+         *
+         * @param retryInterval the retry interval, defaults to 1 second.
+         * @param unit the unit of {@code retryInterval}.
+         *
+         * @return this
+         */
+        public Builder<T> retryInterval(final long retryInterval, final TimeUnit unit) {
+            if (retryInterval < 0) {
+                throw new IllegalArgumentException("retryInterval must not be negative");
+            }
+            this.retryIntervalNanos = unit.toNanos(retryInterval);
+            return this;
+        }
+
+        /**
+         * The executor on which to reload the value in the background.
+         * Defaults to {@link ForkJoinPool#commonPool()}.
+         *
+         * @param executor the executor.
+         *
+         * @return this
+         */
+        public Builder<T> executor(final Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * The source of time, in nanoseconds.
+         * Defaults to {@link System#nanoTime()}.
+         *
+         * @param nanoClock the source of time.
+         *
+         * @return this
+         */
+        Builder<T> nanoClock(final LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        /**
+         * Builds the {@link ExpiringLazyVal}.
+         *
+         * @return the expiring lazy value.
+         */
+        public ExpiringLazyVal<T> build() {
+            return new ExpiringLazyVal<>(this);
+        }
+    }
+}
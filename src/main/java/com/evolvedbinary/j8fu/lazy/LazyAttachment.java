@@ -0,0 +1,288 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Lazy Attachments (which are thread safe) of a value to each object,
+ * i.e. similar to {@link ClassValue} but for any object.
+ *
+ * The value for an object is computed on the first call to {@link #get(Object)}
+ * for that object, and thereafter returned by subsequent calls. Objects are
+ * compared by identity, and are only weakly referenced; once an object is
+ * garbage collected, its entry is automatically expunged, and its value becomes
+ * unreachable (unless the value itself references the object).
+ *
+ * Entries are held in a table which is striped to reduce contention. Looking up an
+ * attached value is lock-free; if there is no value, then it is computed without
+ * holding a lock, and should threads race to compute a value for the same object,
+ * then only the first value to be attached is returned to all of them.
+ *
+ * @param <K> The type of the objects.
+ * @param <V> The type of the attached values.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class LazyAttachment<K, V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Function<K, V> initializer;
+    private final Stripe<K, V>[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Similar to {@link #LazyAttachment(int, Function)} where
+     * {@code maxStripes} is the number of available processors.
+     *
+     * @param initializer A function which provides the value for an object.
+     */
+    public LazyAttachment(final Function<K, V> initializer) {
+        this(Runtime.getRuntime().availableProcessors(), initializer);
+    }
+
+    /**
+     * @param maxStripes The maximum number of stripes; rounded up to the nearest power of two.
+     * @param initializer A function which provides the value for an object.
+     */
+    public LazyAttachment(final int maxStripes, final Function<K, V> initializer) {
+        if (maxStripes < 1 || maxStripes > 1 << 16) {
+            throw new IllegalArgumentException("maxStripes must be between 1 and 65536");
+        }
+        final int stripeCount = maxStripes == 1 ? 1 : Integer.highestOneBit(maxStripes - 1) << 1;
+        this.initializer = initializer;
+        this.stripes = newStripes(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    // a generic array cannot be created directly, the array only ever holds Stripe<K, V>
+    @SuppressWarnings("unchecked")
+    private static <K, V> Stripe<K, V>[] newStripes(final int length) {
+        return (Stripe<K, V>[]) new Stripe<?, ?>[length];
+    }
+
+    /**
+     * Gets the value attached to an object, computing it if needed.
+     *
+     * @param key The object.
+     *
+     * @return The value attached to the object.
+     */
+    public V get(final K key) {
+        Objects.requireNonNull(key);
+        final int hash = hash(key);
+        final Stripe<K, V> stripe = stripes[(hash >>> 16) & stripeMask];
+        final Node<K, V> node = Stripe.find(stripe.table, key, hash);
+        if (node != null) {
+            return node.value;
+        }
+        return stripe.attach(key, hash, initializer.apply(key));
+    }
+
+    /**
+     * Returns true if a value has been attached to the object.
+     *
+     * @param key The object.
+     *
+     * @return true if a value is attached to the object.
+     */
+    public boolean isAttached(final K key) {
+        Objects.requireNonNull(key);
+        final int hash = hash(key);
+        final Stripe<K, V> stripe = stripes[(hash >>> 16) & stripeMask];
+        return Stripe.find(stripe.table, key, hash) != null;
+    }
+
+    /**
+     * Removes the value attached to an object, a new value will
+     * be computed by the next call to {@link #get(Object)}.
+     *
+     * @param key The object.
+     */
+    public void remove(final K key) {
+        Objects.requireNonNull(key);
+        final int hash = hash(key);
+        stripes[(hash >>> 16) & stripeMask].remove(key, hash);
+    }
+
+    /**
+     * Get the number of objects which have attached values,
+     * after expunging those which have been garbage collected.
+     *
+     * @return the number of objects with attached values.
+     */
+    public int size() {
+        int size = 0;
+        for (final Stripe<K, V> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static int hash(final Object key) {
+        final int h = System.identityHashCode(key);
+        // spread the bits, as the high bits select the stripe and the low bits the bucket
+        return (h ^ (h >>> 16)) * 0x9e3779b9;
+    }
+
+    @ThreadSafe
+    private static final class Stripe<K, V> {
+        private final ReferenceQueue<K> collected = new ReferenceQueue<>();
+        private volatile AtomicReferenceArray<Node<K, V>> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+        @GuardedBy("this") private int count = 0;
+
+        static <K, V> Node<K, V> find(final AtomicReferenceArray<Node<K, V>> table, final K key, final int hash) {
+            for (Node<K, V> node = table.get(hash & (table.length() - 1)); node != null; node = node.next) {
+                if (node.get() == key) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        synchronized V attach(final K key, final int hash, final V value) {
+            expunge();
+
+            final AtomicReferenceArray<Node<K, V>> tab = table;
+            final Node<K, V> existing = find(tab, key, hash);
+            if (existing != null) {
+                // another thread attached a value first
+                return existing.value;
+            }
+
+            final int index = hash & (tab.length() - 1);
+            tab.set(index, new Node<>(key, hash, value, tab.get(index), collected));
+            if (++count > tab.length() - (tab.length() >>> 2)) {
+                resize(tab);
+            }
+            return value;
+        }
+
+        synchronized void remove(final K key, final int hash) {
+            expunge();
+            final Node<K, V> node = find(table, key, hash);
+            if (node != null) {
+                unlink(node);
+            }
+        }
+
+        synchronized int size() {
+            expunge();
+            return count;
+        }
+
+        @GuardedBy("this")
+        private void expunge() {
+            Reference<? extends K> ref;
+            while ((ref = collected.poll()) != null) {
+                @SuppressWarnings("unchecked") final Node<K, V> node = (Node<K, V>) ref;
+                unlink(node);
+            }
+        }
+
+        /**
+         * Unlinks a node from its bucket. As the next pointers are immutable,
+         * the nodes before it in the bucket are copied, so that concurrent
+         * readers always see a consistent chain.
+         *
+         * @param target the node to unlink.
+         */
+        @GuardedBy("this")
+        private void unlink(final Node<K, V> target) {
+            final AtomicReferenceArray<Node<K, V>> tab = table;
+            final int index = target.hash & (tab.length() - 1);
+            final Node<K, V> first = tab.get(index);
+
+            boolean found = false;
+            for (Node<K, V> node = first; node != null; node = node.next) {
+                if (node == target) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                // already unlinked, or replaced by a copy
+                return;
+            }
+
+            Node<K, V> chain = target.next;
+            for (Node<K, V> node = first; node != target; node = node.next) {
+                final K key = node.get();
+                if (key != null) {
+                    chain = new Node<>(key, node.hash, node.value, chain, collected);
+                } else {
+                    count--;
+                }
+            }
+            tab.set(index, chain);
+            count--;
+        }
+
+        @GuardedBy("this")
+        private void resize(final AtomicReferenceArray<Node<K, V>> old) {
+            final AtomicReferenceArray<Node<K, V>> tab = new AtomicReferenceArray<>(old.length() << 1);
+            int live = 0;
+            for (int i = 0; i < old.length(); i++) {
+                for (Node<K, V> node = old.get(i); node != null; node = node.next) {
+                    final K key = node.get();
+                    if (key != null) {
+                        final int index = node.hash & (tab.length() - 1);
+                        tab.set(index, new Node<>(key, node.hash, node.value, tab.get(index), collected));
+                        live++;
+                    }
+                }
+            }
+            this.count = live;
+            this.table = tab;
+        }
+    }
+
+    private static final class Node<K, V> extends WeakReference<K> {
+        final int hash;
+        final V value;
+        final Node<K, V> next;
+
+        Node(final K key, final int hash, final V value, final Node<K, V> next, final ReferenceQueue<? super K> queue) {
+            super(key, queue);
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+}
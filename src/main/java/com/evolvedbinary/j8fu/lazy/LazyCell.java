@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.Objects;
+
+/**
+ * A mutable input cell (which is NOT thread safe) of an incremental computation graph.
+ *
+ * When the value of a cell is read during the computation of a {@link LazyDerived},
+ * the derived lazy value records that it depends on the cell. Setting the
+ * value of the cell marks only those derived lazy values which depend on
+ * it, directly or transitively, as dirty.
+ *
+ * @param <T> The type of the cell's value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@NotThreadSafe
+public class LazyCell<T> extends LazyNode {
+    private T val;
+
+    /**
+     * @param val The initial value of the cell.
+     */
+    public LazyCell(final T val) {
+        this.val = val;
+    }
+
+    /**
+     * Gets the value of the cell.
+     *
+     * @return The value of the cell.
+     */
+    public T get() {
+        recordRead();
+        return val;
+    }
+
+    /**
+     * Sets the value of the cell.
+     *
+     * If the value is not equal to the current value, then
+     * all derived lazy values which depend upon the cell are
+     * marked as dirty.
+     *
+     * @param val The new value of the cell.
+     */
+    public void set(final T val) {
+        if (Objects.equals(this.val, val)) {
+            return;
+        }
+        this.val = val;
+        markDependentsDirty();
+    }
+}
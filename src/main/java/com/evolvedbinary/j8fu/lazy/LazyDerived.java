@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A derived Lazy Value (which is NOT thread safe) of an incremental computation graph.
+ *
+ * Will be computed on the first call to {@link #get()}. Whilst computing, each
+ * {@link LazyCell} or other {@link LazyDerived} which is read is recorded as
+ * a dependency. When any dependency changes, the derived lazy value is
+ * marked as dirty, and is recomputed on the next call to {@link #get()};
+ * derived lazy values whose dependencies have not changed are not recomputed.
+ *
+ * Dependencies are recorded afresh on each computation, so a computation
+ * which conditionally reads different dependencies is tracked correctly.
+ *
+ * @param <T> The type of the derived lazy value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@NotThreadSafe
+public class LazyDerived<T> extends LazyNode {
+    private final Supplier<T> computation;
+    private final Set<LazyNode> dependencies = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean dirty = true;
+    private boolean computing = false;
+    private T val = null;
+
+    /**
+     * @param computation A function which computes the value
+     *     from cells and other derived lazy values.
+     */
+    public LazyDerived(final Supplier<T> computation) {
+        this.computation = computation;
+    }
+
+    /**
+     * Gets the value of the derived lazy value,
+     * recomputing it if it is dirty.
+     *
+     * @return The value of the derived lazy value
+     *
+     * @throws IllegalStateException if the derived lazy
+     *   value depends upon itself.
+     */
+    public T get() {
+        recordRead();
+        if (dirty) {
+            compute();
+        }
+        return val;
+    }
+
+    /**
+     * Returns true if the derived lazy value has not yet been computed,
+     * or if any of its dependencies have changed since it was computed.
+     *
+     * @return true if the derived lazy value will be recomputed by the next {@link #get()}.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    private void compute() {
+        if (computing) {
+            throw new IllegalStateException("Cyclic dependency in lazy computation");
+        }
+
+        clearDependencies();
+        computing = true;
+        final LazyDerived<?> previous = enterComputation(this);
+        try {
+            val = computation.get();
+            dirty = false;
+        } finally {
+            exitComputation(previous);
+            computing = false;
+        }
+    }
+
+    private void clearDependencies() {
+        for (final LazyNode dependency : dependencies) {
+            dependency.removeDependent(this);
+        }
+        dependencies.clear();
+    }
+
+    void addDependency(final LazyNode dependency) {
+        if (dependency == this) {
+            throw new IllegalStateException("Cyclic dependency in lazy computation");
+        }
+        dependencies.add(dependency);
+    }
+
+    void markDirty() {
+        if (dirty) {
+            // dependents were already marked when this became dirty
+            return;
+        }
+        dirty = true;
+        markDependentsDirty();
+    }
+}
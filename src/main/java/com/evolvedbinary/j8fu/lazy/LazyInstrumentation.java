@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.ThreadSafe;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Opt-in instrumentation of lazy values.
+ *
+ * Enabled by setting the system property {@value #ENABLED_PROPERTY} to {@code true}
+ * when starting the JVM. When disabled, the instrumentation checks are a
+ * constant which the JIT compiler eliminates, so there is no cost.
+ *
+ * When enabled, {@link LazyVal}, {@link AtomicLazyVal}, {@link LazySoftReference}
+ * and {@link AtomicLazySoftReference} record {@link LazyStats} for each type. The
+ * statistics are available from {@link #getStats(Class)}, via JMX after
+ * {@link #registerMBeans()}, and as events to each {@link LazyListener}.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public final class LazyInstrumentation {
+
+    /**
+     * The system property which enables instrumentation.
+     */
+    public static final String ENABLED_PROPERTY = "com.evolvedbinary.j8fu.lazy.instrumentation";
+
+    /**
+     * True if instrumentation is enabled.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    static final List<LazyListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Map<Class<?>, LazyStats> STATS = new ConcurrentHashMap<>();
+
+    private LazyInstrumentation() {
+    }
+
+    /**
+     * Get the statistics for a type of lazy value, creating them if needed.
+     *
+     * @param type the type of the lazy value.
+     *
+     * @return the statistics.
+     */
+    static LazyStats stats(final Class<?> type) {
+        return STATS.computeIfAbsent(type, LazyStats::new);
+    }
+
+    /**
+     * Get the statistics for a type of lazy value.
+     *
+     * @param type the type of the lazy value, e.g. {@code AtomicLazyVal.class}.
+     *
+     * @return the statistics, or null if the type is not instrumented,
+     *   or instrumentation is not enabled.
+     */
+    public static LazyStats getStats(final Class<?> type) {
+        return ENABLED ? STATS.get(type) : null;
+    }
+
+    /**
+     * Get the statistics for all instrumented types of lazy value.
+     *
+     * @return the statistics, or an empty collection
+     *   if instrumentation is not enabled.
+     */
+    public static Collection<LazyStats> getAllStats() {
+        return ENABLED ? Collections.unmodifiableCollection(STATS.values()) : Collections.emptyList();
+    }
+
+    /**
+     * Adds a listener.
+     *
+     * @param listener the listener.
+     */
+    public static void addListener(final LazyListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener.
+     */
+    public static void removeListener(final LazyListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Registers an MBean for the statistics of each instrumented type of lazy
+     * value with the platform MBean server, named
+     * {@code com.evolvedbinary.j8fu.lazy:type=LazyStats,name=<SimpleName>}.
+     *
+     * Does nothing if instrumentation is not enabled.
+     *
+     * @throws JMException if an MBean could not be registered.
+     */
+    public static void registerMBeans() throws JMException {
+        if (!ENABLED) {
+            return;
+        }
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (final LazyStats stats : STATS.values()) {
+            try {
+                server.registerMBean(stats, objectName(stats.getType()));
+            } catch (final InstanceAlreadyExistsException e) {
+                // already registered
+            }
+        }
+    }
+
+    /**
+     * Unregisters the MBeans registered by {@link #registerMBeans()}.
+     *
+     * @throws JMException if an MBean could not be unregistered.
+     */
+    public static void unregisterMBeans() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (final LazyStats stats : STATS.values()) {
+            try {
+                server.unregisterMBean(objectName(stats.getType()));
+            } catch (final InstanceNotFoundException e) {
+                // not registered
+            }
+        }
+    }
+
+    static ObjectName objectName(final Class<?> type) throws JMException {
+        return new ObjectName("com.evolvedbinary.j8fu.lazy:type=LazyStats,name=" + type.getSimpleName());
+    }
+}
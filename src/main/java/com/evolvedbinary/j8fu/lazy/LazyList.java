@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Lazy List (which is thread safe), i.e. a memoized lazy sequence.
+ *
+ * Elements are taken from the source iterator on demand, as they are
+ * first reached by any iterator of the lazy list, and are then shared
+ * with all other iterators of the lazy list; the source is only iterated once.
+ *
+ * Elements are stored in chunks, each chunk references the next chunk, but
+ * not the previous. So whilst the lazy list references all elements
+ * that have been computed, an iterator only references the chunk it is currently in.
+ * If the lazy list itself is no longer referenced, then the chunks behind
+ * all of its iterators may be garbage collected. For example, a single pass
+ * over {@code new LazyList<>(source).iterator()} holds at most one chunk of elements.
+ *
+ * @param <T> The type of the elements.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class LazyList<T> implements Iterable<T> {
+    private static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final Chunk head;
+
+    /**
+     * @param source The source of the elements.
+     */
+    public LazyList(final Iterator<T> source) {
+        this(DEFAULT_CHUNK_SIZE, source);
+    }
+
+    /**
+     * @param chunkSize The number of elements in each chunk.
+     * @param source The source of the elements.
+     */
+    public LazyList(final int chunkSize, final Iterator<T> source) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.head = new Chunk(new Producer(source), chunkSize);
+    }
+
+    /**
+     * Returns an iterator over the elements, which computes
+     * elements from the source only as they are first reached.
+     *
+     * The iterator is NOT thread safe, however many
+     * iterators may be used concurrently.
+     *
+     * @return an iterator over the elements.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new ChunkIterator<>(head);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+    }
+
+    /**
+     * Returns a sequential stream over the elements.
+     *
+     * @return a stream over the elements.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * A chunk of elements.
+     *
+     * Elements are only appended by the producer, with the
+     * producer's lock held. The volatile write of {@link #size}
+     * publishes the element to readers.
+     */
+    private static final class Chunk {
+        final Producer producer;
+        final Object[] elements;
+        volatile int size = 0;
+        volatile Chunk next = null;
+
+        Chunk(final Producer producer, final int capacity) {
+            this.producer = producer;
+            this.elements = new Object[capacity];
+        }
+    }
+
+    /**
+     * Takes elements from the source and appends them to the last chunk.
+     *
+     * Only referenced by the chunks, and so never
+     * retains any chunk itself.
+     */
+    @ThreadSafe
+    private static final class Producer {
+        @GuardedBy("this") private Iterator<?> source;
+
+        Producer(final Iterator<?> source) {
+            this.source = source;
+        }
+
+        /**
+         * Ensures that there is an element at {@code index} in the
+         * {@code chunk}, or that the chunk has a next chunk.
+         *
+         * @param chunk the chunk.
+         * @param index the index in the chunk of the required element.
+         *
+         * @return false if the source is exhausted.
+         */
+        synchronized boolean produce(final Chunk chunk, final int index) {
+            if (index < chunk.size || chunk.next != null) {
+                // another iterator produced it whilst we waited for the lock
+                return true;
+            }
+
+            if (source == null) {
+                return false;
+            }
+            if (!source.hasNext()) {
+                // release the source
+                source = null;
+                return false;
+            }
+
+            final Object element = source.next();
+            final int size = chunk.size;
+            if (size < chunk.elements.length) {
+                chunk.elements[size] = element;
+                chunk.size = size + 1;
+            } else {
+                final Chunk next = new Chunk(this, chunk.elements.length);
+                next.elements[0] = element;
+                next.size = 1;
+                chunk.next = next;
+            }
+            return true;
+        }
+    }
+
+    @NotThreadSafe
+    private static final class ChunkIterator<T> implements Iterator<T> {
+        private Chunk chunk;
+        private int index = 0;
+
+        ChunkIterator(final Chunk head) {
+            this.chunk = head;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                if (index < chunk.size) {
+                    return true;
+                }
+
+                if (index == chunk.elements.length) {
+                    final Chunk next = chunk.next;
+                    if (next != null) {
+                        chunk = next;
+                        index = 0;
+                        continue;
+                    }
+                }
+
+                if (!chunk.producer.produce(chunk, index)) {
+                    return false;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (T) chunk.elements[index++];
+        }
+    }
+}
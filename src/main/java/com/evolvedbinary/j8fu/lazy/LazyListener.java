@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+/**
+ * A listener for the events recorded by {@link LazyInstrumentation}.
+ *
+ * Listeners are called on the thread which caused the event, and so
+ * should return quickly and must not throw.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+public interface LazyListener {
+
+    /**
+     * Called when a lazy value has been initialized, or re-initialized.
+     *
+     * @param type the type of the lazy value, e.g. {@code AtomicLazyVal.class}.
+     * @param initNanos the time taken by the initializer in nanoseconds.
+     * @param recompute true if the value was re-initialized, i.e. after a soft reference was cleared.
+     */
+    default void initialized(final Class<?> type, final long initNanos, final boolean recompute) {
+    }
+
+    /**
+     * Called when a thread which attempted to initialize a lazy value
+     * found that another thread had already initialized it.
+     *
+     * @param type the type of the lazy value, e.g. {@code AtomicLazyVal.class}.
+     */
+    default void collision(final Class<?> type) {
+    }
+
+    /**
+     * Called when a thread starts initializing a lazy value, or
+     * waiting for another thread to finish initializing it.
+     *
+     * @param type the type of the lazy value, e.g. {@code AtomicLazyVal.class}.
+     * @param waiters the number of threads now initializing, or waiting
+     *   for the initialization of, lazy values of this type.
+     */
+    default void waiting(final Class<?> type, final int waiters) {
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import com.evolvedbinary.j8fu.function.FunctionE;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A Lazily memory-mapped region of a file (which is thread safe).
+ *
+ * The region is mapped on the first call to {@link #apply(FunctionE)},
+ * and re-mapped on the next call after {@link #invalidate()}. Unlike
+ * holding a {@link MappedByteBuffer} in a {@link LazySoftReference},
+ * the region is unmapped deterministically by {@link #invalidate()}
+ * and {@link #close()}, rather than when the buffer is eventually garbage
+ * collected, so that address space is not leaked.
+ *
+ * To make deterministic unmapping safe, the buffer is only accessible within
+ * {@link #apply(FunctionE)}, which holds a read lock; unmapping waits for
+ * all such functions to complete. As a consequence the function must not
+ * call {@link #invalidate()} or {@link #close()} on the same region, nor
+ * {@link #apply(FunctionE)} whilst the region is unmapped, as the read lock
+ * cannot be upgraded; such calls fail with an {@link IllegalStateException}
+ * rather than deadlocking.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class LazyMappedRegion implements AutoCloseable {
+    private static final AtomicLong TOTAL_MAPPED_BYTES = new AtomicLong();
+
+    private final Path file;
+    private final FileChannel.MapMode mode;
+    private final long position;
+    private final long size;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    @GuardedBy("lock") private MappedByteBuffer buffer = null;
+    @GuardedBy("lock") private boolean closed = false;
+
+    private final LongAdder mapCount = new LongAdder();
+    private final LongAdder unmapCount = new LongAdder();
+
+    /**
+     * @param file The file to map.
+     * @param mode The mode to map the file in.
+     * @param position The position in the file at which the region starts.
+     * @param size The size of the region in bytes.
+     */
+    public LazyMappedRegion(final Path file, final FileChannel.MapMode mode, final long position, final long size) {
+        if (position < 0 || size < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid region: position=" + position + ", size=" + size);
+        }
+        this.file = file;
+        this.mode = mode;
+        this.position = position;
+        this.size = size;
+    }
+
+    /**
+     * Applies a function to the mapped region, mapping it first if needed.
+     *
+     * The function is given a duplicate of the mapped buffer, so that its
+     * position and limit are independent of any other thread. The function must
+     * not retain the buffer, as it is invalid after the region is unmapped.
+     *
+     * @param f The function to apply to the mapped region.
+     *
+     * @return the result of the function.
+     *
+     * @throws IOException if the region could not be mapped.
+     * @throws E an exception thrown by the function.
+     * @throws IllegalStateException if this has been closed, or if the region
+     *     needs mapping whilst the calling thread is already within
+     *     {@link #apply(FunctionE)}.
+     *
+     * @param <R> The type of the result of the function.
+     * @param <E> The type of exception thrown by the function.
+     */
+    public <R, E extends Throwable> R apply(final FunctionE<ByteBuffer, R, E> f) throws IOException, E {
+        lock.readLock().lock();
+        try {
+            if (buffer == null) {
+                map();
+            }
+            return f.apply(buffer.duplicate());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Maps the region, upgrading the read lock
+     * to the write lock, and then downgrading it again.
+     */
+    private void map() throws IOException {
+        if (lock.getReadHoldCount() > 1) {
+            // the read lock of an enclosing apply cannot be released, so the upgrade would deadlock
+            throw new IllegalStateException("LazyMappedRegion cannot be mapped from within apply");
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("LazyMappedRegion is closed");
+            }
+            if (buffer == null) {
+                final StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                        ? new StandardOpenOption[] { StandardOpenOption.READ }
+                        : new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+                try (final FileChannel channel = FileChannel.open(file, options)) {
+                    buffer = channel.map(mode, position, size);
+                }
+                mapCount.increment();
+                TOTAL_MAPPED_BYTES.addAndGet(size);
+            }
+        } finally {
+            // downgrade
+            lock.readLock().lock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces any changes made to a mapped {@link FileChannel.MapMode#READ_WRITE}
+     * region to be written to the file.
+     */
+    public void force() {
+        lock.readLock().lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Unmaps the region, it will be re-mapped by
+     * the next call to {@link #apply(FunctionE)}.
+     *
+     * @throws IllegalStateException if called from within {@link #apply(FunctionE)}.
+     */
+    public void invalidate() {
+        checkNotReading();
+        lock.writeLock().lock();
+        try {
+            unmap();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Unmaps the region, thereafter {@link #apply(FunctionE)}
+     * throws an {@link IllegalStateException}.
+     *
+     * @throws IllegalStateException if called from within {@link #apply(FunctionE)}.
+     */
+    @Override
+    public void close() {
+        checkNotReading();
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            unmap();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkNotReading() {
+        if (lock.getReadHoldCount() > 0) {
+            // the write lock cannot be acquired whilst this thread holds the read lock
+            throw new IllegalStateException("LazyMappedRegion cannot be unmapped from within apply");
+        }
+    }
+
+    @GuardedBy("lock")
+    private void unmap() {
+        if (buffer == null) {
+            return;
+        }
+        if (mode == FileChannel.MapMode.READ_WRITE) {
+            buffer.force();
+        }
+        final boolean unmapped = Unmapper.unmap(buffer);
+        buffer = null;
+        // the buffer is dropped either way, if it could not be unmapped then it is left to the garbage collector
+        TOTAL_MAPPED_BYTES.addAndGet(-size);
+        if (unmapped) {
+            unmapCount.increment();
+        }
+    }
+
+    /**
+     * Returns true if the region is currently mapped.
+     *
+     * @return true if the region is currently mapped.
+     */
+    public boolean isMapped() {
+        lock.readLock().lock();
+        try {
+            return buffer != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of bytes currently mapped by this region.
+     *
+     * @return the number of mapped bytes.
+     */
+    public long getMappedBytes() {
+        return isMapped() ? size : 0;
+    }
+
+    /**
+     * Get the number of times that this region has been mapped.
+     *
+     * @return the number of times mapped.
+     */
+    public long getMapCount() {
+        return mapCount.sum();
+    }
+
+    /**
+     * Get the number of times that this region has been unmapped deterministically,
+     * i.e. not counting buffers which were left to the garbage collector.
+     *
+     * @return the number of times unmapped.
+     */
+    public long getUnmapCount() {
+        return unmapCount.sum();
+    }
+
+    /**
+     * Get the number of bytes currently mapped by all regions.
+     *
+     * Bytes are no longer counted once their region has been requested to be
+     * unmapped, even on a JVM where the buffer could not be unmapped
+     * deterministically, and so awaits garbage collection.
+     *
+     * @return the total number of mapped bytes.
+     */
+    public static long getTotalMappedBytes() {
+        return TOTAL_MAPPED_BYTES.get();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * A node in an incremental computation graph, which
+ * tracks the derived lazy values that depend on it.
+ *
+ * Dependents are only weakly referenced, so that a derived lazy
+ * value which is no longer in use may be garbage collected, even
+ * whilst the nodes it depends upon are still reachable.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@NotThreadSafe
+abstract class LazyNode {
+    private static final ThreadLocal<LazyDerived<?>> COMPUTING = new ThreadLocal<>();
+
+    private final Set<LazyDerived<?>> dependents = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * Records that this node has been read by the derived
+     * lazy value which is currently computing (if any).
+     */
+    final void recordRead() {
+        final LazyDerived<?> computing = COMPUTING.get();
+        if (computing != null) {
+            computing.addDependency(this);
+            dependents.add(computing);
+        }
+    }
+
+    final void removeDependent(final LazyDerived<?> dependent) {
+        dependents.remove(dependent);
+    }
+
+    /**
+     * Marks all dependents, and in turn their dependents, as dirty.
+     */
+    final void markDependentsDirty() {
+        for (final LazyDerived<?> dependent : dependents) {
+            dependent.markDirty();
+        }
+    }
+
+    /**
+     * Makes {@code derived} the derived lazy value which
+     * is currently computing on this thread.
+     *
+     * @param derived the derived lazy value which is starting to compute.
+     *
+     * @return the derived lazy value which was previously
+     *   computing on this thread, or null.
+     */
+    static LazyDerived<?> enterComputation(final LazyDerived<?> derived) {
+        final LazyDerived<?> previous = COMPUTING.get();
+        COMPUTING.set(derived);
+        return previous;
+    }
+
+    static void exitComputation(final LazyDerived<?> previous) {
+        if (previous == null) {
+            COMPUTING.remove();
+        } else {
+            COMPUTING.set(previous);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * A registry of lazy values which may be warmed up (i.e. initialized)
+ * in parallel, whilst respecting the dependencies between them.
+ *
+ * Lazy values are registered by name along with the names of the
+ * lazy values which they depend on, for example:
+ *
+ * <pre>{@code
+ * registry.register("config", config::get);
+ * registry.register("index", index::get, "config");
+ * registry.register("templates", templates::get, "config");
+ * }</pre>
+ *
+ * {@link #warmUp(Executor)} then initializes each lazy value
+ * as soon as all of its dependencies have been initialized, so
+ * independent branches of the dependency graph are initialized
+ * in parallel.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class LazyRegistry {
+
+    @GuardedBy("this") private final Map<String, Registration> registrations = new LinkedHashMap<>();
+
+    /**
+     * Registers a lazy value.
+     *
+     * The dependencies do not need to have been registered yet,
+     * but must have been registered before {@link #warmUp(Executor)} is called.
+     *
+     * @param name A unique name for the lazy value.
+     * @param lazy A function which initializes the lazy value, e.g. {@code lazyVal::get}.
+     * @param dependsOn The names of the lazy values which must be initialized before this one.
+     *
+     * @return this
+     *
+     * @throws IllegalArgumentException if a lazy value with the same name is already registered.
+     */
+    public synchronized LazyRegistry register(final String name, final Supplier<?> lazy, final String... dependsOn) {
+        if (registrations.containsKey(name)) {
+            throw new IllegalArgumentException("A lazy value named '" + name + "' is already registered");
+        }
+        registrations.put(name, new Registration(name, lazy, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    /**
+     * Initializes all of the registered lazy values in parallel,
+     * in dependency order.
+     *
+     * If a lazy value fails to initialize, then the lazy values
+     * which depend on it are not initialized, and the failure is
+     * recorded in the report.
+     *
+     * @param executor The executor on which to initialize the lazy values.
+     *
+     * @return A future which is completed with a report once every
+     *   lazy value has either been initialized or has failed.
+     *
+     * @throws IllegalStateException if a dependency has not been registered,
+     *   or if the dependencies contain a cycle.
+     */
+    public CompletableFuture<WarmUpReport> warmUp(final Executor executor) {
+        final List<Registration> ordered = topologicalOrder();
+
+        final Map<String, InitTiming> timings = new ConcurrentHashMap<>();
+        final Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+
+        final long warmUpStart = System.nanoTime();
+        for (final Registration registration : ordered) {
+            final CompletableFuture<?>[] dependencies = new CompletableFuture<?>[registration.dependsOn.size()];
+            for (int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = futures.get(registration.dependsOn.get(i));
+            }
+
+            final CompletableFuture<Void> future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                final long start = System.nanoTime();
+                registration.lazy.get();
+                final long end = System.nanoTime();
+                timings.put(registration.name, new InitTiming(registration.name, registration.dependsOn, start - warmUpStart, end - start));
+            }, executor);
+
+            futures.put(registration.name, future);
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, t) -> {
+                    final long elapsed = System.nanoTime() - warmUpStart;
+                    final Map<String, InitTiming> orderedTimings = new LinkedHashMap<>();
+                    final Map<String, Throwable> orderedFailures = new LinkedHashMap<>();
+                    for (final Registration registration : ordered) {
+                        final InitTiming timing = timings.get(registration.name);
+                        if (timing != null) {
+                            orderedTimings.put(registration.name, timing);
+                        }
+                        final CompletableFuture<Void> future = futures.get(registration.name);
+                        if (future.isCompletedExceptionally()) {
+                            try {
+                                future.join();
+                            } catch (final CompletionException e) {
+                                orderedFailures.put(registration.name, e.getCause() != null ? e.getCause() : e);
+                            }
+                        }
+                    }
+                    return new WarmUpReport(elapsed, orderedTimings, orderedFailures);
+                });
+    }
+
+    /**
+     * Orders the registrations so that every lazy value
+     * appears after all of its dependencies.
+     */
+    private synchronized List<Registration> topologicalOrder() {
+        final List<Registration> ordered = new ArrayList<>(registrations.size());
+        final Map<String, Boolean> visited = new HashMap<>();  // false = in progress, true = done
+        for (final Registration registration : registrations.values()) {
+            visit(registration, visited, ordered, new ArrayList<>());
+        }
+        return ordered;
+    }
+
+    @GuardedBy("this")
+    private void visit(final Registration registration, final Map<String, Boolean> visited,
+            final List<Registration> ordered, final List<String> path) {
+        final Boolean state = visited.get(registration.name);
+        if (state != null) {
+            if (!state) {
+                path.add(registration.name);
+                throw new IllegalStateException("Cyclic dependency between lazy values: " + String.join(" -> ", path.subList(path.indexOf(registration.name), path.size())));
+            }
+            return;
+        }
+
+        visited.put(registration.name, false);
+        path.add(registration.name);
+        for (final String dependency : registration.dependsOn) {
+            final Registration dependencyRegistration = registrations.get(dependency);
+            if (dependencyRegistration == null) {
+                throw new IllegalStateException("Lazy value '" + registration.name + "' depends on '" + dependency + "' which is not registered");
+            }
+            visit(dependencyRegistration, visited, ordered, path);
+        }
+        path.remove(path.size() - 1);
+        visited.put(registration.name, true);
+        ordered.add(registration);
+    }
+
+    private static class Registration {
+        final String name;
+        final Supplier<?> lazy;
+        final List<String> dependsOn;
+
+        Registration(final String name, final Supplier<?> lazy, final List<String> dependsOn) {
+            this.name = name;
+            this.lazy = lazy;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    /**
+     * The time taken to initialize a lazy value during a warm up.
+     */
+    @Immutable
+    public static final class InitTiming {
+        private final String name;
+        private final List<String> dependsOn;
+        private final long startNanos;
+        private final long durationNanos;
+
+        private InitTiming(final String name, final List<String> dependsOn, final long startNanos, final long durationNanos) {
+            this.name = name;
+            this.dependsOn = dependsOn;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * @return the name of the lazy value.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the names of the lazy values which this lazy value depends on.
+         */
+        public List<String> getDependsOn() {
+            return Collections.unmodifiableList(dependsOn);
+        }
+
+        /**
+         * @return when the initialization started, in nanoseconds since the start of the warm up.
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * @return how long the initialization took, in nanoseconds.
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (start=" + startNanos + "ns, duration=" + durationNanos + "ns)";
+        }
+    }
+
+    /**
+     * A report of a warm up, see {@link LazyRegistry#warmUp(Executor)}.
+     */
+    @Immutable
+    public static final class WarmUpReport {
+        private final long elapsedNanos;
+        private final Map<String, InitTiming> timings;
+        private final Map<String, Throwable> failures;
+
+        private WarmUpReport(final long elapsedNanos, final Map<String, InitTiming> timings, final Map<String, Throwable> failures) {
+            this.elapsedNanos = elapsedNanos;
+            this.timings = timings;
+            this.failures = failures;
+        }
+
+        /**
+         * @return the total time taken by the warm up, in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the timings of each lazy value which was
+         *   initialized, in dependency order.
+         */
+        public Map<String, InitTiming> getTimings() {
+            return Collections.unmodifiableMap(timings);
+        }
+
+        /**
+         * @return the exception of each lazy value which failed to
+         *   initialize, or which was not initialized because a
+         *   dependency failed.
+         */
+        public Map<String, Throwable> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * @return true if every lazy value was initialized.
+         */
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * Calculates the critical path of the warm up, i.e. the chain of
+         * dependent lazy values whose total initialization time is the
+         * longest. The warm up cannot complete faster than this
+         * regardless of parallelism, so it is the chain to optimise.
+         *
+         * @return the names of the lazy values on the critical
+         *   path, from the first to be initialized to the last.
+         */
+        public List<String> getCriticalPath() {
+            // earliest finish of each lazy value if there were unlimited threads
+            final Map<String, Long> finish = new HashMap<>();
+            final Map<String, String> predecessor = new HashMap<>();
+            String last = null;
+            for (final InitTiming timing : timings.values()) {
+                long start = 0;
+                for (final String dependency : timing.dependsOn) {
+                    final Long dependencyFinish = finish.get(dependency);
+                    if (dependencyFinish != null && dependencyFinish > start) {
+                        start = dependencyFinish;
+                        predecessor.put(timing.name, dependency);
+                    }
+                }
+                final long end = start + timing.durationNanos;
+                finish.put(timing.name, end);
+                if (last == null || end > finish.get(last)) {
+                    last = timing.name;
+                }
+            }
+
+            final List<String> path = new ArrayList<>();
+            for (String name = last; name != null; name = predecessor.get(name)) {
+                path.add(name);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+    }
+}
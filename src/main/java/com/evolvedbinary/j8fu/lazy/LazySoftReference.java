@@ -28,7 +28,6 @@ package com.evolvedbinary.j8fu.lazy;
 
 import net.jcip.annotations.NotThreadSafe;
 
-import java.lang.ref.SoftReference;
 import java.util.function.Supplier;
 
 /**
@@ -45,14 +44,26 @@ import java.util.function.Supplier;
  */
 @NotThreadSafe
 public class LazySoftReference<T> {
+    private static final LazyStats STATS = LazyInstrumentation.ENABLED ? LazyInstrumentation.stats(LazySoftReference.class) : null;
+
     private final Supplier<T> initializer;
-    private SoftReference<T> softRef = null;
+    private final ReclamationStrategy reclamationStrategy;
+    private Reclaimable<T> softRef = null;
 
     /**
      * @param initializer A function which provides the value.
      */
     public LazySoftReference(final Supplier<T> initializer) {
+        this(initializer, ReclamationStrategy.soft());
+    }
+
+    /**
+     * @param initializer A function which provides the value.
+     * @param reclamationStrategy The strategy which decides when the value may be reclaimed.
+     */
+    public LazySoftReference(final Supplier<T> initializer, final ReclamationStrategy reclamationStrategy) {
         this.initializer = initializer;
+        this.reclamationStrategy = reclamationStrategy;
     }
 
     /**
@@ -70,18 +81,27 @@ public class LazySoftReference<T> {
      */
     public T get() {
         if(softRef == null) {
-            softRef = new SoftReference<>(initializer.get());
+            final T val = callInitializer(false);
+            softRef = reclamationStrategy.hold(val);
+            return val;
         }
 
         T val = softRef.get();
         if (val == null) {
-            val = initializer.get();
-            softRef = new SoftReference<>(val);
+            val = callInitializer(true);
+            softRef = reclamationStrategy.hold(val);
+            reclamationStrategy.recomputed();
+        } else if (LazyInstrumentation.ENABLED) {
+            STATS.hit();
         }
 
         return val;
     }
 
+    private T callInitializer(final boolean recompute) {
+        return LazyInstrumentation.ENABLED ? STATS.initialize(initializer, recompute) : initializer.get();
+    }
+
     /**
      * Returns true if the soft reference has been initialized.
      *
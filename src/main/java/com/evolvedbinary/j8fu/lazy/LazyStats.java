@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Statistics recorded by {@link LazyInstrumentation}
+ * for a type of lazy value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public final class LazyStats implements LazyStatsMXBean {
+    private final Class<?> type;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder inits = new LongAdder();
+    private final LongAdder recomputes = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final LongAccumulator maxWaiters = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxInitNanos = new LongAccumulator(Math::max, 0);
+    private final Log2Histogram initNanos = new Log2Histogram();
+
+    LazyStats(final Class<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * Get the type of lazy value which these statistics are for.
+     *
+     * @return the type of lazy value.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    /**
+     * Initializes a value, recording the time taken by the initializer.
+     *
+     * @param initializer the initializer.
+     * @param recompute true if the value is being re-initialized.
+     *
+     * @return the value.
+     *
+     * @param <T> the type of the value.
+     */
+    <T> T initialize(final Supplier<T> initializer, final boolean recompute) {
+        final long start = System.nanoTime();
+        final T val = initializer.get();
+        final long elapsed = System.nanoTime() - start;
+
+        inits.increment();
+        if (recompute) {
+            recomputes.increment();
+        }
+        initNanos.record(elapsed);
+        maxInitNanos.accumulate(elapsed);
+        for (final LazyListener listener : LazyInstrumentation.LISTENERS) {
+            listener.initialized(type, elapsed, recompute);
+        }
+        return val;
+    }
+
+    void collision() {
+        collisions.increment();
+        for (final LazyListener listener : LazyInstrumentation.LISTENERS) {
+            listener.collision(type);
+        }
+    }
+
+    void waiterArrived() {
+        final int current = waiters.incrementAndGet();
+        maxWaiters.accumulate(current);
+        for (final LazyListener listener : LazyInstrumentation.LISTENERS) {
+            listener.waiting(type, current);
+        }
+    }
+
+    void waiterLeft() {
+        waiters.decrementAndGet();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getInitCount() {
+        return inits.sum();
+    }
+
+    @Override
+    public long getRecomputeCount() {
+        return recomputes.sum();
+    }
+
+    @Override
+    public long getCollisionCount() {
+        return collisions.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        final long hitCount = hits.sum();
+        final long total = hitCount + inits.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public int getWaiters() {
+        return waiters.get();
+    }
+
+    @Override
+    public int getMaxWaiters() {
+        return (int) maxWaiters.get();
+    }
+
+    @Override
+    public long getInitTimeP50Nanos() {
+        return initNanos.getPercentile(50);
+    }
+
+    @Override
+    public long getInitTimeP99Nanos() {
+        return initNanos.getPercentile(99);
+    }
+
+    @Override
+    public long getInitTimeMaxNanos() {
+        return maxInitNanos.get();
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        inits.reset();
+        recomputes.reset();
+        collisions.reset();
+        maxWaiters.reset();
+        maxInitNanos.reset();
+        initNanos.reset();
+    }
+}
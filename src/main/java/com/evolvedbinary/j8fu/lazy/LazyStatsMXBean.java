@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+/**
+ * JMX view of the {@link LazyStats} for a type of lazy value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+public interface LazyStatsMXBean {
+
+    /**
+     * @return the number of times that a value was
+     *   retrieved without needing to be initialized.
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of times that a value was
+     *   initialized, including re-initializations.
+     */
+    long getInitCount();
+
+    /**
+     * @return the number of times that a value was
+     *   re-initialized, e.g. after a soft reference was cleared.
+     */
+    long getRecomputeCount();
+
+    /**
+     * @return the number of times that a thread found that another
+     *   thread had already initialized the value it was initializing.
+     */
+    long getCollisionCount();
+
+    /**
+     * @return the fraction of retrievals which did not need to initialize the value.
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of threads currently initializing a value,
+     *   or waiting for another thread to initialize it.
+     */
+    int getWaiters();
+
+    /**
+     * @return the maximum number of threads which have been initializing a value,
+     *   or waiting for another thread to initialize it, at the same time.
+     */
+    int getMaxWaiters();
+
+    /**
+     * @return the median time taken by an initializer in nanoseconds, to within a factor of two.
+     */
+    long getInitTimeP50Nanos();
+
+    /**
+     * @return the 99th percentile time taken by an initializer in nanoseconds, to within a factor of two.
+     */
+    long getInitTimeP99Nanos();
+
+    /**
+     * @return the maximum time taken by an initializer in nanoseconds.
+     */
+    long getInitTimeMaxNanos();
+
+    /**
+     * Resets all of the statistics.
+     */
+    void reset();
+}
@@ -41,6 +41,8 @@ import java.util.function.Supplier;
  */
 @NotThreadSafe
 public class LazyVal<T> {
+    private static final LazyStats STATS = LazyInstrumentation.ENABLED ? LazyInstrumentation.stats(LazyVal.class) : null;
+
     private final Supplier<T> initializer;
     private T val = null;
 
@@ -58,7 +60,9 @@ public class LazyVal<T> {
      */
     public T get() {
         if(val == null) {
-            val = initializer.get();
+            val = LazyInstrumentation.ENABLED ? STATS.initialize(initializer, false) : initializer.get();
+        } else if (LazyInstrumentation.ENABLED) {
+            STATS.hit();
         }
         return val;
     }
@@ -29,6 +29,7 @@ package com.evolvedbinary.j8fu.lazy;
 import com.evolvedbinary.j8fu.Either;
 import net.jcip.annotations.NotThreadSafe;
 
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 import static com.evolvedbinary.j8fu.Either.valueOrThrow;
@@ -39,6 +40,10 @@ import static com.evolvedbinary.j8fu.Either.valueOrThrow;
  *
  * Will be initialized once on the first call to {@link #get()}.
  *
+ * If initialisation fails, the failure is cached. By default it is cached
+ * forever, otherwise the {@link RetryPolicy} decides for how long, after which
+ * the next call to {@link #get()} re-initializes the lazy value.
+ *
  * @param <T> The type of the lazy value.
  * @param <E> The type of an exception that may occur
  *     at initialisation.
@@ -48,14 +53,33 @@ import static com.evolvedbinary.j8fu.Either.valueOrThrow;
 @NotThreadSafe
 public class LazyValE<T, E extends Throwable> {
     private final Supplier<Either<E, T>> initializer;
+    private final RetryPolicy retryPolicy;
+    private final LongSupplier nanoClock;
     private Either<E, T> val = null;
+    private int failures = 0;
+    private long retryAt = 0;
 
     /**
      * @param initializer A function which provides the value
      *     or an exception.
      */
     public LazyValE(final Supplier<Either<E, T>> initializer) {
+        this(initializer, RetryPolicy.never());
+    }
+
+    /**
+     * @param initializer A function which provides the value
+     *     or an exception.
+     * @param retryPolicy The policy for retrying a failed initialisation.
+     */
+    public LazyValE(final Supplier<Either<E, T>> initializer, final RetryPolicy retryPolicy) {
+        this(initializer, retryPolicy, System::nanoTime);
+    }
+
+    LazyValE(final Supplier<Either<E, T>> initializer, final RetryPolicy retryPolicy, final LongSupplier nanoClock) {
         this.initializer = initializer;
+        this.retryPolicy = retryPolicy;
+        this.nanoClock = nanoClock;
     }
 
     /**
@@ -63,11 +87,18 @@ public class LazyValE<T, E extends Throwable> {
      *
      * @return The value of the lazy value
      *
-     * @throws E an exception which occurred during initialisation.
+     * @throws E an exception which occurred during initialisation,
+     *     which may have been cached from an earlier initialisation.
      */
     public T get() throws E {
-        if(val == null) {
+        if(val == null || (val.isLeft() && retryPolicy.isRetryable() && nanoClock.getAsLong() - retryAt >= 0)) {
             val = initializer.get();
+            if (val.isLeft()) {
+                failures++;
+                retryAt = nanoClock.getAsLong() + retryPolicy.backoffNanos(failures);
+            } else {
+                failures = 0;
+            }
         }
         return valueOrThrow(val);
     }
@@ -0,0 +1,328 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link ReclamationStrategy} which holds values by strong reference,
+ * until the JVM signals that the heap is under memory pressure; at which point
+ * the least recently used values are reclaimed until a fraction of the total
+ * weight of the held values has been dropped.
+ *
+ * Unlike {@link ReclamationStrategy#soft()}, values are only reclaimed when
+ * memory is actually short, and then only as many as are needed, in least
+ * recently used order. This avoids both the bulk clearing of soft references
+ * by the garbage collector, and the cost of large soft heaps to the garbage collector.
+ *
+ * Memory pressure is signalled either by calling {@link #reclaim()}, or
+ * after {@link #listen(double)}, by the collection usage threshold notifications
+ * of the heap {@link MemoryPoolMXBean}s.
+ *
+ * Recency of use is approximate, values which are used between two consecutive
+ * calls to {@link #hold(Object)} or {@link #reclaim()} are considered to be
+ * equally recent.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class MemoryPressureReclamationStrategy implements ReclamationStrategy, AutoCloseable {
+    private final ToLongFunction<Object> weigher;
+    private final double reclaimFraction;
+
+    private final Set<TrackedRef> tracked = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<StrongReclaimable<?>> collected = new ReferenceQueue<>();
+    private final AtomicLong tick = new AtomicLong();
+    private final Object reclaimLock = new Object();
+
+    private final LongAdder clears = new LongAdder();
+    private final LongAdder clearedWeight = new LongAdder();
+    private final LongAdder recomputes = new LongAdder();
+
+    @GuardedBy("this") private NotificationListener listener = null;
+    @GuardedBy("this") private final Map<MemoryPoolMXBean, Long> previousThresholds = new IdentityHashMap<>();
+
+    /**
+     * @param weigher A function which calculates the weight
+     *   (e.g. approximate size in bytes) of a value.
+     * @param reclaimFraction The fraction of the total weight of the held
+     *   values to reclaim when under memory pressure, between 0 and 1.
+     */
+    public MemoryPressureReclamationStrategy(final ToLongFunction<Object> weigher, final double reclaimFraction) {
+        if (reclaimFraction <= 0 || reclaimFraction > 1) {
+            throw new IllegalArgumentException("reclaimFraction must be greater than 0 and at most 1");
+        }
+        this.weigher = weigher;
+        this.reclaimFraction = reclaimFraction;
+    }
+
+    /**
+     * Similar to {@link #MemoryPressureReclamationStrategy(ToLongFunction, double)}
+     * where every value has a weight of 1.
+     *
+     * @param reclaimFraction The fraction of the held values to reclaim
+     *   when under memory pressure, between 0 and 1.
+     */
+    public MemoryPressureReclamationStrategy(final double reclaimFraction) {
+        this(value -> 1, reclaimFraction);
+    }
+
+    /**
+     * Starts listening for memory pressure.
+     *
+     * Sets the collection usage threshold of each heap memory pool which supports
+     * one, and reclaims values whenever a threshold is exceeded. As thresholds
+     * are global to the JVM, only one strategy should listen at a time.
+     * The previous thresholds are restored by {@link #close()}.
+     *
+     * @param usageThreshold The fraction of the maximum size of each
+     *   heap memory pool, at which to reclaim values.
+     *
+     * @return this
+     */
+    public synchronized MemoryPressureReclamationStrategy listen(final double usageThreshold) {
+        if (usageThreshold <= 0 || usageThreshold > 1) {
+            throw new IllegalArgumentException("usageThreshold must be greater than 0 and at most 1");
+        }
+        if (listener != null) {
+            throw new IllegalStateException("Already listening");
+        }
+
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            final long max = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && max > 0) {
+                previousThresholds.put(pool, pool.getCollectionUsageThreshold());
+                pool.setCollectionUsageThreshold((long) (max * usageThreshold));
+            }
+        }
+
+        this.listener = (notification, handback) -> {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())
+                    || MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                reclaim();
+            }
+        };
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(listener, null, null);
+        return this;
+    }
+
+    /**
+     * Stops listening for memory pressure, and restores
+     * the previous collection usage thresholds.
+     */
+    @Override
+    public synchronized void close() {
+        if (listener == null) {
+            return;
+        }
+
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(listener);
+        } catch (final ListenerNotFoundException e) {
+            // already removed
+        }
+        listener = null;
+
+        for (final Map.Entry<MemoryPoolMXBean, Long> previousThreshold : previousThresholds.entrySet()) {
+            previousThreshold.getKey().setCollectionUsageThreshold(previousThreshold.getValue());
+        }
+        previousThresholds.clear();
+    }
+
+    @Override
+    public <T> Reclaimable<T> hold(final T value) {
+        expungeCollected();
+        final long weight = value == null ? 0 : weigher.applyAsLong(value);
+        final StrongReclaimable<T> reclaimable = new StrongReclaimable<>(this, value, weight, tick.incrementAndGet());
+        tracked.add(new TrackedRef(reclaimable, collected));
+        return reclaimable;
+    }
+
+    @Override
+    public void recomputed() {
+        recomputes.increment();
+    }
+
+    /**
+     * Reclaims the least recently used values, until the
+     * reclaim fraction of the total weight has been dropped.
+     *
+     * @return the weight of the values which were reclaimed.
+     */
+    public long reclaim() {
+        synchronized (reclaimLock) {
+            return reclaimLeastRecentlyUsed();
+        }
+    }
+
+    @GuardedBy("reclaimLock")
+    private long reclaimLeastRecentlyUsed() {
+        expungeCollected();
+
+        tick.incrementAndGet();
+        final List<StrongReclaimable<?>> live = new ArrayList<>(tracked.size());
+        long totalWeight = 0;
+        for (final Iterator<TrackedRef> it = tracked.iterator(); it.hasNext(); ) {
+            final StrongReclaimable<?> reclaimable = it.next().get();
+            if (reclaimable == null || reclaimable.value == null) {
+                it.remove();
+                continue;
+            }
+            live.add(reclaimable);
+            totalWeight += reclaimable.weight;
+        }
+
+        live.sort(Comparator.comparingLong(reclaimable -> reclaimable.lastAccess));
+        final long target = (long) Math.ceil(totalWeight * reclaimFraction);
+        long reclaimed = 0;
+        for (int i = 0; i < live.size() && reclaimed < target; i++) {
+            final StrongReclaimable<?> reclaimable = live.get(i);
+            if (reclaimable.clear()) {
+                reclaimed += reclaimable.weight;
+                clears.increment();
+                clearedWeight.add(reclaimable.weight);
+            }
+        }
+        return reclaimed;
+    }
+
+    @Override
+    public long getClearCount() {
+        return clears.sum();
+    }
+
+    /**
+     * Get the total weight of the values which have been reclaimed.
+     *
+     * @return the total reclaimed weight.
+     */
+    public long getClearedWeight() {
+        return clearedWeight.sum();
+    }
+
+    @Override
+    public long getRecomputeCount() {
+        return recomputes.sum();
+    }
+
+    /**
+     * Get the number of values which are currently held.
+     *
+     * @return the number of held values.
+     */
+    public int getHeldCount() {
+        expungeCollected();
+        int count = 0;
+        for (final TrackedRef trackedRef : tracked) {
+            final StrongReclaimable<?> reclaimable = trackedRef.get();
+            if (reclaimable != null && reclaimable.value != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stops tracking holders which have been garbage collected,
+     * i.e. whose lazy reference is no longer in use.
+     */
+    private void expungeCollected() {
+        TrackedRef trackedRef;
+        while ((trackedRef = (TrackedRef) collected.poll()) != null) {
+            tracked.remove(trackedRef);
+        }
+    }
+
+    /**
+     * Weakly references a holder, so that tracking it
+     * does not keep its value reachable.
+     */
+    private static final class TrackedRef extends WeakReference<StrongReclaimable<?>> {
+        TrackedRef(final StrongReclaimable<?> referent, final ReferenceQueue<? super StrongReclaimable<?>> queue) {
+            super(referent, queue);
+        }
+    }
+
+    private static final class StrongReclaimable<T> implements Reclaimable<T> {
+        private final MemoryPressureReclamationStrategy strategy;
+        private final long weight;
+        private volatile T value;
+        private volatile long lastAccess;
+
+        StrongReclaimable(final MemoryPressureReclamationStrategy strategy, final T value, final long weight, final long lastAccess) {
+            this.strategy = strategy;
+            this.value = value;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+
+        @Override
+        public T get() {
+            final T v = value;
+            if (v != null) {
+                final long now = strategy.tick.get();
+                // avoid writing (and so invalidating the cache line) unless the tick has moved on
+                if (lastAccess != now) {
+                    lastAccess = now;
+                }
+            }
+            return v;
+        }
+
+        @GuardedBy("strategy.reclaimLock")
+        boolean clear() {
+            if (value == null) {
+                return false;
+            }
+            value = null;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+/**
+ * A Reclamation Strategy determines how the values of lazily
+ * initialized references such as {@link LazySoftReference} and
+ * {@link AtomicLazySoftReference} are held, and when they may be
+ * reclaimed; after which they are recomputed on next access.
+ *
+ * The default strategy is {@link #soft()}, see also
+ * {@link MemoryPressureReclamationStrategy}.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+public interface ReclamationStrategy {
+
+    /**
+     * Holds a value which may later be reclaimed.
+     *
+     * @param value the value to hold.
+     *
+     * @return the holder of the value.
+     *
+     * @param <T> The type of the value.
+     */
+    <T> Reclaimable<T> hold(T value);
+
+    /**
+     * Called when a value is recomputed because it was reclaimed.
+     */
+    void recomputed();
+
+    /**
+     * Get the number of values which have been reclaimed.
+     *
+     * @return the number of reclaimed values.
+     */
+    long getClearCount();
+
+    /**
+     * Get the number of values which have been recomputed
+     * because they were reclaimed.
+     *
+     * @return the number of recomputed values.
+     */
+    long getRecomputeCount();
+
+    /**
+     * A strategy which holds values by {@link java.lang.ref.SoftReference},
+     * so that they are reclaimed at the discretion of the garbage collector.
+     *
+     * The returned strategy is shared and stateless; it does not count
+     * clears or recomputes, so its metrics are always zero.
+     * See {@link #trackedSoft()} for a strategy with metrics.
+     *
+     * @return the soft reference strategy.
+     */
+    static ReclamationStrategy soft() {
+        return SoftReclamationStrategy.UNTRACKED;
+    }
+
+    /**
+     * A strategy which, like {@link #soft()}, holds values by
+     * {@link java.lang.ref.SoftReference}, but which also counts the
+     * values that are cleared and recomputed.
+     *
+     * Each call returns a new strategy, so its metrics are
+     * only for the references which use it.
+     *
+     * @return a new soft reference strategy with metrics.
+     */
+    static ReclamationStrategy trackedSoft() {
+        return new SoftReclamationStrategy(true);
+    }
+}
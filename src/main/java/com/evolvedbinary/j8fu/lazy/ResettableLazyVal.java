@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.function.Supplier;
+
+/**
+ * A Resettable Lazy Value (which is NOT thread safe).
+ *
+ * Will be initialized on the first call to {@link #get()}, and
+ * re-initialized on the next call to {@link #get()} after it
+ * has been invalidated, either by {@link #invalidate()}, or
+ * by advancing its {@link LazyEpoch}.
+ *
+ * @param <T> The type of the lazy value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@NotThreadSafe
+public class ResettableLazyVal<T> {
+    private final LazyEpoch epoch;
+    private final Supplier<T> initializer;
+    private boolean initialized = false;
+    private long initializedEpoch;
+    private T val = null;
+
+    /**
+     * @param initializer A function which provides the value.
+     */
+    public ResettableLazyVal(final Supplier<T> initializer) {
+        this(new LazyEpoch(), initializer);
+    }
+
+    /**
+     * @param epoch The epoch of the group of lazy values which this belongs to.
+     * @param initializer A function which provides the value.
+     */
+    public ResettableLazyVal(final LazyEpoch epoch, final Supplier<T> initializer) {
+        this.epoch = epoch;
+        this.initializer = initializer;
+    }
+
+    /**
+     * Gets the value of the lazy value.
+     *
+     * @return The value of the lazy value
+     */
+    public T get() {
+        final long current = epoch.current();
+        if (!initialized || initializedEpoch != current) {
+            val = initializer.get();
+            initializedEpoch = current;
+            initialized = true;
+        }
+        return val;
+    }
+
+    /**
+     * Invalidates the lazy value, so that it is
+     * re-initialized on the next call to {@link #get()}.
+     */
+    public void invalidate() {
+        initialized = false;
+        val = null;
+    }
+
+    /**
+     * Returns true if the lazy value has been initialized,
+     * and has not since been invalidated.
+     *
+     * @return true if the lazy value has been initialized.
+     */
+    public boolean isInitialized() {
+        return initialized && initializedEpoch == epoch.current();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.Immutable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes if, and when, a lazy value whose initializer
+ * failed may be re-initialized.
+ *
+ * The failure is cached for a time-to-live, during which the
+ * cached failure is returned without invoking the initializer. After
+ * each consecutive failure the time-to-live may be increased by a
+ * multiplier, i.e. exponential backoff, up to a maximum.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@Immutable
+public final class RetryPolicy {
+    private static final RetryPolicy NEVER = new RetryPolicy(-1, 1, -1);
+
+    private final long failureTtlNanos;
+    private final double backoffMultiplier;
+    private final long maxBackoffNanos;
+
+    private RetryPolicy(final long failureTtlNanos, final double backoffMultiplier, final long maxBackoffNanos) {
+        this.failureTtlNanos = failureTtlNanos;
+        this.backoffMultiplier = backoffMultiplier;
+        this.maxBackoffNanos = maxBackoffNanos;
+    }
+
+    /**
+     * A policy where a failure is cached forever,
+     * i.e. the initializer is never retried.
+     *
+     * @return the policy.
+     */
+    public static RetryPolicy never() {
+        return NEVER;
+    }
+
+    /**
+     * A policy where a failure is cached for a fixed time-to-live,
+     * after which the initializer may be retried.
+     *
+     * @param failureTtl the time-to-live of a cached failure.
+     * @param unit the unit of {@code failureTtl}.
+     *
+     * @return the policy.
+     */
+    public static RetryPolicy retryAfter(final long failureTtl, final TimeUnit unit) {
+        if (failureTtl < 0) {
+            throw new IllegalArgumentException("failureTtl must not be negative");
+        }
+        final long failureTtlNanos = unit.toNanos(failureTtl);
+        return new RetryPolicy(failureTtlNanos, 1, failureTtlNanos);
+    }
+
+    /**
+     * Creates a policy like this one, but where the time-to-live of a
+     * cached failure is multiplied after each consecutive failure.
+     *
+     * @param multiplier the multiplier to apply after each consecutive failure, at least 1.
+     * @param maxBackoff the maximum time-to-live of a cached failure.
+     * @param unit the unit of {@code maxBackoff}.
+     *
+     * @return the policy.
+     */
+    public RetryPolicy withBackoff(final double multiplier, final long maxBackoff, final TimeUnit unit) {
+        if (!isRetryable()) {
+            throw new IllegalStateException("Cannot backoff when never retrying");
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+        final long maxBackoffNanos = unit.toNanos(maxBackoff);
+        if (maxBackoffNanos < failureTtlNanos) {
+            throw new IllegalArgumentException("maxBackoff must be at least the failureTtl");
+        }
+        return new RetryPolicy(failureTtlNanos, multiplier, maxBackoffNanos);
+    }
+
+    /**
+     * Returns true if the initializer may be retried.
+     *
+     * @return true if the initializer may be retried.
+     */
+    public boolean isRetryable() {
+        return failureTtlNanos >= 0;
+    }
+
+    /**
+     * Calculates how long to cache a failure for.
+     *
+     * @param failures the number of consecutive failures, at least 1.
+     *
+     * @return the time-to-live of the cached failure in nanoseconds.
+     */
+    long backoffNanos(final int failures) {
+        final double backoff = failureTtlNanos * Math.pow(backoffMultiplier, failures - 1);
+        return (long) Math.min(backoff, maxBackoffNanos);
+    }
+}
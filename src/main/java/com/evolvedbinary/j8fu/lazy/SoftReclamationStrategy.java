@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ReclamationStrategy} which holds values by {@link SoftReference},
+ * see {@link ReclamationStrategy#soft()} and {@link ReclamationStrategy#trackedSoft()}.
+ *
+ * An untracked strategy holds plain soft references without a reference queue,
+ * and does not count clears or recomputes, so it is stateless and may be shared.
+ *
+ * A tracked strategy counts clears when the garbage collector enqueues a
+ * cleared soft reference, so {@link #getClearCount()} only counts values whose
+ * holder was still reachable when they were cleared. Cleared references are
+ * retained by its queue until they are counted by the next call to
+ * {@link #hold(Object)} or {@link #getClearCount()}.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+final class SoftReclamationStrategy implements ReclamationStrategy {
+    static final SoftReclamationStrategy UNTRACKED = new SoftReclamationStrategy(false);
+
+    private final ReferenceQueue<Object> cleared;
+    private final LongAdder clears;
+    private final LongAdder recomputes;
+
+    /**
+     * @param tracked true to count clears and recomputes.
+     */
+    SoftReclamationStrategy(final boolean tracked) {
+        this.cleared = tracked ? new ReferenceQueue<>() : null;
+        this.clears = tracked ? new LongAdder() : null;
+        this.recomputes = tracked ? new LongAdder() : null;
+    }
+
+    @Override
+    public <T> Reclaimable<T> hold(final T value) {
+        if (cleared == null) {
+            return new SoftReclaimable<>(value, null);
+        }
+        countCleared();
+        return new SoftReclaimable<>(value, cleared);
+    }
+
+    @Override
+    public void recomputed() {
+        if (recomputes != null) {
+            recomputes.increment();
+        }
+    }
+
+    @Override
+    public long getClearCount() {
+        if (cleared == null) {
+            return 0;
+        }
+        countCleared();
+        return clears.sum();
+    }
+
+    @Override
+    public long getRecomputeCount() {
+        return recomputes != null ? recomputes.sum() : 0;
+    }
+
+    /**
+     * Counts, and removes, the cleared references from the queue.
+     */
+    private void countCleared() {
+        while (cleared.poll() != null) {
+            clears.increment();
+        }
+    }
+
+    private static final class SoftReclaimable<T> extends SoftReference<T> implements Reclaimable<T> {
+        SoftReclaimable(final T referent, final ReferenceQueue<? super T> queue) {
+            super(referent, queue);
+        }
+    }
+}
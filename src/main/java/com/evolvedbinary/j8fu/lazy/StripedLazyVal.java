@@ -0,0 +1,302 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import com.evolvedbinary.j8fu.function.FunctionE;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A Striped Lazy Value (which is thread safe), for sharing
+ * objects which are themselves NOT thread safe, e.g.
+ * {@link java.security.MessageDigest} or {@link javax.crypto.Cipher}.
+ *
+ * Holds a fixed number of stripes, each of which lazily initializes
+ * its own instance, and guards it with its own lock. A thread is
+ * given exclusive use of an instance for the duration of
+ * {@link #apply(FunctionE)}. Threads are spread across the stripes by
+ * a hash of their id, if a thread's stripe is busy then the other
+ * stripes are probed for one that is free, before waiting for its own stripe.
+ *
+ * By default the number of stripes is bounded by the number of available
+ * processors. Unlike a {@link ThreadLocal}, the number of instances does not
+ * grow with the number of threads, and so remains bounded when there are
+ * many (e.g. virtual) threads.
+ *
+ * @param <T> The type of the lazy value.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class StripedLazyVal<T> implements AutoCloseable {
+    private final Supplier<T> initializer;
+    private final Consumer<T> cleanup;
+    private final Stripe<T>[] stripes;
+    private final int mask;
+    private volatile boolean closed = false;
+
+    /**
+     * Similar to {@link #StripedLazyVal(Supplier, Consumer)}
+     * but without any cleanup.
+     *
+     * @param initializer A function which provides each instance.
+     */
+    public StripedLazyVal(final Supplier<T> initializer) {
+        this(initializer, null);
+    }
+
+    /**
+     * Similar to {@link #StripedLazyVal(int, Supplier, Consumer)}
+     * where the {@code maxStripes} is the number of available processors.
+     *
+     * @param initializer A function which provides each instance.
+     * @param cleanup A function which cleans up each instance on {@link #close()}, or null.
+     */
+    public StripedLazyVal(final Supplier<T> initializer, final Consumer<T> cleanup) {
+        this(Runtime.getRuntime().availableProcessors(), initializer, cleanup);
+    }
+
+    /**
+     * @param maxStripes The maximum number of stripes, and so instances;
+     *   rounded up to the nearest power of two.
+     * @param initializer A function which provides each instance.
+     * @param cleanup A function which cleans up each instance on {@link #close()}, or null.
+     */
+    public StripedLazyVal(final int maxStripes, final Supplier<T> initializer, final Consumer<T> cleanup) {
+        if (maxStripes < 1 || maxStripes > 1 << 16) {
+            throw new IllegalArgumentException("maxStripes must be between 1 and 65536");
+        }
+        final int stripeCount = maxStripes == 1 ? 1 : Integer.highestOneBit(maxStripes - 1) << 1;
+        this.initializer = initializer;
+        this.cleanup = cleanup;
+        this.stripes = newStripes(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.mask = stripeCount - 1;
+    }
+
+    // a generic array cannot be created directly, the array only ever holds Stripe<T>
+    @SuppressWarnings("unchecked")
+    private static <T> Stripe<T>[] newStripes(final int length) {
+        return (Stripe<T>[]) new Stripe<?>[length];
+    }
+
+    /**
+     * Applies a function to an instance, which the
+     * calling thread has exclusive use of whilst the function runs.
+     *
+     * The function must not retain the instance. The function may itself call
+     * {@link #apply(FunctionE)}, in which case it is given a different instance;
+     * stripes which are already held by the calling thread are skipped. As a thread
+     * which holds a stripe must never wait for another, if no other stripe is free
+     * then a nested call is given a new instance, which is not pooled and is
+     * cleaned up as soon as the function completes.
+     *
+     * @param f The function to apply to the instance.
+     *
+     * @return the result of the function.
+     *
+     * @throws E an exception thrown by the function.
+     * @throws IllegalStateException if this has been closed.
+     *
+     * @param <R> The type of the result of the function.
+     * @param <E> The type of exception thrown by the function.
+     */
+    public <R, E extends Throwable> R apply(final FunctionE<T, R, E> f) throws E {
+        final Stripe<T> stripe = lockStripe();
+        if (stripe == null) {
+            return applyUnpooled(f);
+        }
+        try {
+            if (stripe.closed) {
+                throw new IllegalStateException("StripedLazyVal is closed");
+            }
+            if (!stripe.initialized) {
+                stripe.val = initializer.get();
+                stripe.initialized = true;
+            }
+            return f.apply(stripe.val);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Applies a function to a new instance, which is cleaned up afterwards.
+     */
+    private <R, E extends Throwable> R applyUnpooled(final FunctionE<T, R, E> f) throws E {
+        if (closed) {
+            throw new IllegalStateException("StripedLazyVal is closed");
+        }
+        final T val = initializer.get();
+        try {
+            return f.apply(val);
+        } finally {
+            if (cleanup != null) {
+                cleanup.accept(val);
+            }
+        }
+    }
+
+    /**
+     * Locks the stripe for the current thread, or if it is busy,
+     * another stripe which is free. Only waits if all probed stripes are busy.
+     *
+     * Stripes which the current thread already holds are skipped, as
+     * re-entering one would give a nested call the instance that is in use.
+     * A thread which already holds a stripe never waits, as two such threads
+     * could each wait for the other's stripe.
+     *
+     * @return the locked stripe, or null if the current thread holds
+     *   a stripe and no other stripe is free.
+     */
+    private Stripe<T> lockStripe() {
+        final int home = probe();
+        Stripe<T> wait = null;
+        boolean holding = false;
+        for (int i = 0; i <= mask; i++) {
+            final Stripe<T> stripe = stripes[(home + i) & mask];
+            if (stripe.lock.isHeldByCurrentThread()) {
+                holding = true;
+                continue;
+            }
+            if (stripe.lock.tryLock()) {
+                return stripe;
+            }
+            if (wait == null) {
+                wait = stripe;
+            }
+        }
+
+        if (holding) {
+            return null;
+        }
+        wait.lock.lock();
+        return wait;
+    }
+
+    /**
+     * Calculates the stripe for the current thread.
+     *
+     * @return the index of the stripe.
+     */
+    private int probe() {
+        // mix the bits of the thread id, as ids are typically sequential
+        long h = Thread.currentThread().getId();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    /**
+     * Get the number of stripes.
+     *
+     * @return the number of stripes.
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Get the number of instances which have been initialized.
+     *
+     * @return the number of initialized instances.
+     */
+    public int getInitializedCount() {
+        int count = 0;
+        for (final Stripe<T> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (stripe.initialized) {
+                    count++;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Closes this, cleaning up each initialized instance.
+     *
+     * Waits for any threads which are using an instance to
+     * finish; thereafter {@link #apply(FunctionE)} throws
+     * an {@link IllegalStateException}.
+     *
+     * Every instance is cleaned up, even if cleaning up another fails.
+     *
+     * @throws RuntimeException the first exception thrown by the cleanup
+     *   function, with any subsequent exceptions added as suppressed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        RuntimeException failure = null;
+        for (final Stripe<T> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (stripe.closed) {
+                    continue;
+                }
+                stripe.closed = true;
+                if (stripe.initialized) {
+                    final T val = stripe.val;
+                    stripe.val = null;
+                    stripe.initialized = false;
+                    if (cleanup != null) {
+                        cleanup.accept(val);
+                    }
+                }
+            } catch (final RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else if (failure != e) {
+                    failure.addSuppressed(e);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Stripe<T> {
+        final ReentrantLock lock = new ReentrantLock();
+        @GuardedBy("lock") boolean initialized = false;
+        @GuardedBy("lock") boolean closed = false;
+        @GuardedBy("lock") T val = null;
+    }
+}
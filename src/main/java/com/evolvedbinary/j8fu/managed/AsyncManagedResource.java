@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A resource whose asynchronous acquisition and
+ * release is managed by an asynchronous mapping function.
+ *
+ * Similar to {@link ManagedResource}, but no thread is blocked
+ * whilst waiting for the resource to be acquired, or for the
+ * mapping function to complete.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+public class AsyncManagedResource<T, AR> {
+    private final T subject;
+    private final Function<T, CompletionStage<AR>> acquireFn;
+    private final BiConsumer<T, AR> releaseFn;
+
+    private AsyncManagedResource(final T subject, final Function<T, CompletionStage<AR>> acquireFn, final BiConsumer<T, AR> releaseFn) {
+        this.subject = subject;
+        this.acquireFn = acquireFn;
+        this.releaseFn = releaseFn;
+    }
+
+    /**
+     * Acquires the resource, and then applies the mapper to it.
+     *
+     * The resource is released exactly once, when the stage returned by
+     * the mapper completes, whether normally or exceptionally. If the
+     * acquisition fails, then the release function is called with
+     * {@code null}, as with {@link ManagedResource#map(Function)}.
+     *
+     * Cancelling the returned future completes it at once, but cancellation is
+     * not propagated to the acquisition nor to the stage returned by the mapper,
+     * as cancelling a {@link CompletableFuture} does not stop the work which
+     * completes it; releasing the resource then would release it whilst it may
+     * still be in use. Instead the resource is released once the acquisition,
+     * and the mapper's stage if the mapper was applied, have actually completed.
+     *
+     * @param mapper a function which asynchronously uses the resource.
+     *
+     * @return a future of the result of the mapper. If the release function
+     *   throws, then the future completes exceptionally with that exception,
+     *   unless the mapper had already failed, in which case it is suppressed.
+     *
+     * @param <U> the type of the result of the mapper.
+     */
+    public <U> CompletableFuture<U> mapAsync(final Function<AR, CompletionStage<U>> mapper) {
+        final CompletableFuture<U> result = new CompletableFuture<>();
+
+        final CompletionStage<AR> acquisition;
+        try {
+            acquisition = acquireFn.apply(subject);
+        } catch (final Throwable e) {
+            release(null, e, result);
+            return result;
+        }
+
+        acquisition.whenComplete((acquireResult, acquireException) -> {
+            if (acquireException != null) {
+                release(null, acquireException, result);
+                return;
+            }
+
+            if (result.isDone()) {
+                // cancelled before the acquisition completed
+                release(acquireResult, null, result);
+                return;
+            }
+
+            final CompletionStage<U> mapping;
+            try {
+                mapping = mapper.apply(acquireResult);
+            } catch (final Throwable e) {
+                release(acquireResult, e, result);
+                return;
+            }
+
+            mapping.whenComplete((mapResult, mapException) -> {
+                if (release(acquireResult, mapException, result)) {
+                    result.complete(mapResult);
+                }
+            });
+        });
+
+        return result;
+    }
+
+    /**
+     * Releases the resource, completing the result exceptionally if
+     * either {@code exception} is non-null or the release fails.
+     *
+     * @return true if the result may be completed normally.
+     */
+    private boolean release(final AR acquireResult, final Throwable exception, final CompletableFuture<?> result) {
+        try {
+            releaseFn.accept(subject, acquireResult);
+        } catch (final Throwable releaseException) {
+            if (exception != null) {
+                if (releaseException != exception) {
+                    // a throwable cannot suppress itself
+                    exception.addSuppressed(releaseException);
+                }
+                result.completeExceptionally(exception);
+            } else {
+                result.completeExceptionally(releaseException);
+            }
+            return false;
+        }
+
+        if (exception != null) {
+            result.completeExceptionally(exception);
+            return false;
+        }
+        return true;
+    }
+
+    public static <T, AR> AsyncManagedResource<T, AR> managedAsync(final T subject, final Function<T, CompletionStage<AR>> acquireFn, final BiConsumer<T, AR> releaseFn) {
+        return new AsyncManagedResource<>(subject, acquireFn, releaseFn);
+    }
+}
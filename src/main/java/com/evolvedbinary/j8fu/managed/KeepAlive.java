@@ -0,0 +1,312 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A cache of resources which are kept alive between uses (which is thread safe).
+ *
+ * See {@link ManagedResource#withKeepAlive(KeepAlive)}. Each subject has a slot which
+ * holds at most one idle resource. Taking a resource from, and returning a resource to,
+ * a slot is a single compare-and-set, so a thread which repeatedly uses the same subject
+ * acquires its resource only once. If a slot is already occupied when a resource is
+ * returned, then that resource is released immediately.
+ *
+ * Resources which have been idle for longer than the idle timeout are released by a
+ * sweeper, which runs on a {@link TimerWheel} shared by all keep alive caches, and only
+ * whilst the cache has slots. Resources may therefore be released up to a quarter of
+ * the idle timeout late. Slots are keyed by the equality of their subjects, and a
+ * cache should only be used for one kind of resource, as an idle resource is
+ * released by the release function of the managed resource which first used its slot.
+ *
+ * @param <T> The type of the subjects.
+ * @param <AR> The type of the resources.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class KeepAlive<T, AR> implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(KeepAlive.class.getName());
+
+    private final long idleNanos;
+    private final LongSupplier nanoClock;
+    private final TimerWheel sweeper;
+    private final ConcurrentHashMap<T, Slot<T, AR>> slots = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile boolean closed = false;
+
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * @param idleTimeout the time that a resource is kept alive whilst it is not used.
+     * @param unit the unit of {@code idleTimeout}.
+     */
+    public KeepAlive(final long idleTimeout, final TimeUnit unit) {
+        this(unit.toNanos(idleTimeout), System::nanoTime, SharedSweeper.WHEEL);
+    }
+
+    /**
+     * @param idleNanos the time that a resource is kept alive whilst it is not used.
+     * @param nanoClock the clock.
+     * @param sweeper the timer wheel which schedules sweeps, or null if {@link #sweep()} is called explicitly.
+     */
+    KeepAlive(final long idleNanos, final LongSupplier nanoClock, final TimerWheel sweeper) {
+        if (idleNanos < 1) {
+            throw new IllegalArgumentException("idleTimeout must be positive");
+        }
+        this.idleNanos = idleNanos;
+        this.nanoClock = nanoClock;
+        this.sweeper = sweeper;
+    }
+
+    /**
+     * Gets the slot of a subject.
+     *
+     * @param subject the subject.
+     * @param releaseFn the function which releases resources of the subject.
+     *
+     * @return the slot, or null if the cache has been closed.
+     */
+    Slot<T, AR> slot(final T subject, final BiConsumer<T, AR> releaseFn) {
+        if (closed) {
+            return null;
+        }
+        final Slot<T, AR> slot = slots.get(subject);
+        if (slot != null) {
+            return slot;
+        }
+        return slots.computeIfAbsent(subject, key -> new Slot<>(this, key, releaseFn));
+    }
+
+    /**
+     * Releases any resources which have been idle for longer than the idle
+     * timeout, and removes the slots of subjects which have not been used
+     * for longer than the idle timeout.
+     *
+     * @return the number of resources which were released.
+     */
+    int sweep() {
+        final long now = nanoClock.getAsLong();
+        int released = 0;
+        for (final Slot<T, AR> slot : slots.values()) {
+            if (now - slot.lastUsed < idleNanos) {
+                continue;
+            }
+            if (slot.resource != null) {
+                final AR idle = slot.evict();
+                if (idle != null) {
+                    expired.increment();
+                    release(slot, idle);
+                    released++;
+                }
+            } else if (slots.remove(slot.subject, slot)) {
+                slot.retire();
+            }
+        }
+        return released;
+    }
+
+    private void sweepAndReschedule() {
+        try {
+            sweep();
+        } finally {
+            sweeping.set(false);
+            if (!slots.isEmpty()) {
+                scheduleSweep();
+            }
+        }
+    }
+
+    private void scheduleSweep() {
+        if (sweeper != null && !closed && !sweeping.get() && sweeping.compareAndSet(false, true)) {
+            sweeper.schedule(idleNanos / 4, this::sweepAndReschedule);
+        }
+    }
+
+    private void release(final Slot<T, AR> slot, final AR resource) {
+        try {
+            slot.releaseFn.accept(slot.subject, resource);
+        } catch (final RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to release kept alive resource: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the number of times that a kept alive resource has been reused.
+     *
+     * @return the number of reuses.
+     */
+    public long getReuseCount() {
+        return reused.sum();
+    }
+
+    /**
+     * Get the number of kept alive resources which have
+     * been released after exceeding the idle timeout.
+     *
+     * @return the number of expired resources.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Get the number of resources which are currently kept alive.
+     *
+     * @return the number of idle resources.
+     */
+    public int getIdleCount() {
+        int idle = 0;
+        for (final Slot<T, AR> slot : slots.values()) {
+            if (slot.resource != null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * Closes the cache, releasing all idle resources.
+     *
+     * Resources which are in use when the cache
+     * is closed are released when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (final Slot<T, AR> slot : slots.values()) {
+            if (slots.remove(slot.subject, slot)) {
+                slot.retire();
+            }
+        }
+    }
+
+    /**
+     * Holds the idle resource, if any, of a subject.
+     *
+     * A slot which has been retired, i.e. removed from the cache, may still be used
+     * by a thread which obtained it beforehand, so both the retiring thread and any
+     * thread which returns a resource re-check after their own write, which ensures
+     * that a resource is never left behind in a retired slot.
+     */
+    @ThreadSafe
+    static final class Slot<T, AR> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Slot, Object> RESOURCE =
+                AtomicReferenceFieldUpdater.newUpdater(Slot.class, Object.class, "resource");
+
+        private final KeepAlive<T, AR> keepAlive;
+        private final T subject;
+        private final BiConsumer<T, AR> releaseFn;
+        private volatile AR resource = null;
+        private volatile long lastUsed;
+        private volatile boolean retired = false;
+
+        private Slot(final KeepAlive<T, AR> keepAlive, final T subject, final BiConsumer<T, AR> releaseFn) {
+            this.keepAlive = keepAlive;
+            this.subject = subject;
+            this.releaseFn = releaseFn;
+            this.lastUsed = keepAlive.nanoClock.getAsLong();
+        }
+
+        /**
+         * Takes the idle resource.
+         *
+         * @return the idle resource, or null if there is none.
+         */
+        @SuppressWarnings("unchecked")
+        AR take() {
+            final AR taken = resource != null ? (AR) RESOURCE.getAndSet(this, null) : null;
+            if (taken != null) {
+                keepAlive.reused.increment();
+            }
+            lastUsed = keepAlive.nanoClock.getAsLong();
+            return taken;
+        }
+
+        /**
+         * Offers a resource to be kept alive.
+         *
+         * @param offered the resource.
+         *
+         * @return true if the resource is kept alive, or false
+         *     if the caller must release the resource.
+         */
+        boolean offer(final AR offered) {
+            if (offered == null) {
+                return false;
+            }
+            lastUsed = keepAlive.nanoClock.getAsLong();
+            if (!RESOURCE.compareAndSet(this, null, offered)) {
+                return false;
+            }
+            if ((retired || keepAlive.closed) && RESOURCE.compareAndSet(this, offered, null)) {
+                return false;
+            }
+            keepAlive.scheduleSweep();
+            return true;
+        }
+
+        /**
+         * Removes the idle resource, if any.
+         *
+         * @return the idle resource, or null if there is none.
+         */
+        private AR evict() {
+            final AR idle = resource;
+            return idle != null && RESOURCE.compareAndSet(this, idle, null) ? idle : null;
+        }
+
+        private void retire() {
+            retired = true;
+            final AR idle = evict();
+            if (idle != null) {
+                keepAlive.release(this, idle);
+            }
+        }
+    }
+
+    /**
+     * Lazily starts the sweeper thread on first use.
+     */
+    private static final class SharedSweeper {
+        static final TimerWheel WHEEL = new TimerWheel("j8fu-keep-alive-sweeper",
+                TimeUnit.MILLISECONDS.toNanos(10), 512, System::nanoTime, true);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free log-linear histogram of latencies (which is thread safe).
+ *
+ * Values are counted in buckets; each power of two range is divided into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so a value is reported to within
+ * 12.5% of its true value, across the whole range of a {@code long}, in a
+ * fixed amount of memory.
+ *
+ * Recording a value costs four atomic increments and never waits. Counts
+ * are held in an array which is swapped for a new array on reset. Recording
+ * is a critical section of a writer-reader phaser; after swapping the arrays,
+ * {@link #snapshotAndReset()} waits for the writers which may still be
+ * recording into the old array, so every value is counted in exactly one
+ * snapshot, and the count and sum of that snapshot agree.
+ *
+ * {@link #snapshot()} does not wait, so values which are concurrently being
+ * recorded may be counted in only one of its count and sum.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // the last element holds the sum of the values
+    private static final int SUM = BUCKETS;
+
+    private volatile AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+
+    // writer-reader phaser, writers enter the critical section of the even or odd phase
+    // by incrementing the start epoch, whose sign is the phase, and exit it by incrementing
+    // the end epoch of that phase
+    private final AtomicLong startEpoch = new AtomicLong(0);
+    private final AtomicLong evenEndEpoch = new AtomicLong(0);
+    private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+    private final Object flipLock = new Object();
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, negative values are recorded as 0.
+     */
+    public void record(final long value) {
+        final long v = Math.max(0, value);
+        final long epoch = startEpoch.getAndIncrement();
+        try {
+            final AtomicLongArray c = counts;
+            c.incrementAndGet(bucket(v));
+            c.addAndGet(SUM, v);
+        } finally {
+            (epoch < 0 ? oddEndEpoch : evenEndEpoch).getAndIncrement();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the recorded values.
+     *
+     * @return the snapshot.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(counts);
+    }
+
+    /**
+     * Resets the histogram.
+     */
+    public void reset() {
+        flip();
+    }
+
+    /**
+     * Takes a snapshot of the recorded values, and resets the histogram.
+     *
+     * @return the snapshot.
+     */
+    public Snapshot snapshotAndReset() {
+        return new Snapshot(flip());
+    }
+
+    /**
+     * Swaps the counts for a new array, and waits for any
+     * writers which may still be recording into the old array.
+     *
+     * @return the old array, which is no longer written to.
+     */
+    private AtomicLongArray flip() {
+        synchronized (flipLock) {
+            final AtomicLongArray old = counts;
+            counts = new AtomicLongArray(BUCKETS + 1);
+
+            final boolean nextPhaseIsEven = startEpoch.get() < 0;
+            final long initialEpoch = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+            (nextPhaseIsEven ? evenEndEpoch : oddEndEpoch).set(initialEpoch);
+            final long epochAtFlip = startEpoch.getAndSet(initialEpoch);
+
+            // writers never block, so this wait is brief
+            final AtomicLong previousEndEpoch = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+            while (previousEndEpoch.get() != epochAtFlip) {
+                Thread.yield();
+            }
+            return old;
+        }
+    }
+
+    static int bucket(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long lowerBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    static long upperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return mantissa == 2 * SUB_BUCKETS - 1 && shift == Long.SIZE - 1 - SUB_BUCKET_BITS - 1
+                ? Long.MAX_VALUE
+                : ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable snapshot of a {@link LatencyHistogram}.
+     */
+    @Immutable
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+
+        Snapshot(final AtomicLongArray counts) {
+            this.buckets = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = counts.get(i);
+                total += buckets[i];
+            }
+            this.count = total;
+            this.sum = counts.get(SUM);
+        }
+
+        /**
+         * Get the number of recorded values.
+         *
+         * @return the number of values.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the mean of the recorded values.
+         *
+         * @return the mean, or 0 if there are no values.
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Get the minimum recorded value.
+         *
+         * @return the lower bound of the lowest bucket with a value, or 0 if there are no values.
+         */
+        public long getMin() {
+            for (int i = 0; i < BUCKETS; i++) {
+                if (buckets[i] != 0) {
+                    return lowerBound(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Get the maximum recorded value.
+         *
+         * @return the upper bound of the highest bucket with a value, or 0 if there are no values.
+         */
+        public long getMax() {
+            for (int i = BUCKETS - 1; i >= 0; i--) {
+                if (buckets[i] != 0) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Get the value at a percentile.
+         *
+         * @param percentile the percentile, between 0 and 100.
+         *
+         * @return the upper bound of the bucket that the percentile
+         *   falls in, or 0 if there are no values.
+         */
+        public long getPercentile(final double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                    + ", mean=" + String.format("%.1f", getMean())
+                    + ", p50=" + getPercentile(50)
+                    + ", p90=" + getPercentile(90)
+                    + ", p99=" + getPercentile(99)
+                    + ", max=" + getMax();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reclaims the resources of managed resources whose leases have expired (which is thread safe).
+ *
+ * A managed resource with a lease, see {@link ManagedResource#withLease(LeaseReaper, long, TimeUnit)},
+ * is granted a lease each time that its resource is acquired. If the mapper has not
+ * completed by the time that the lease expires, the reaper reports the expiry with
+ * the stack trace of the thread which holds the lease, optionally interrupts that
+ * thread, and then releases the resource itself. The resource is released exactly
+ * once, either by the reaper or by the managed resource when the mapper completes.
+ *
+ * All leases share a single {@link TimerWheel}, which is advanced by one daemon thread,
+ * so granting and releasing a lease is lock-free and does not create a timer.
+ * Leases expire at the first tick on or after their deadline.
+ *
+ * Use {@link #builder()} to construct a {@link LeaseReaper}.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class LeaseReaper implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(LeaseReaper.class.getName());
+
+    private final TimerWheel wheel;
+    private final boolean interrupt;
+    private final Consumer<LeaseExpiredException> reporter;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder interrupted = new LongAdder();
+    private final LongAdder reclaimFailures = new LongAdder();
+
+    private LeaseReaper(final Builder builder) {
+        this.wheel = new TimerWheel("j8fu-lease-reaper", builder.tickNanos, builder.wheelSize, builder.nanoClock, builder.worker);
+        this.interrupt = builder.interrupt;
+        this.reporter = builder.reporter != null ? builder.reporter : e -> LOG.log(Level.WARNING, e.getMessage(), e);
+    }
+
+    /**
+     * Create a builder for a {@link LeaseReaper}.
+     *
+     * @return the builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Grants a lease to the current thread.
+     *
+     * @param durationNanos the duration of the lease.
+     * @param reclaim releases the resource.
+     *
+     * @return the lease.
+     *
+     * @throws IllegalStateException if the reaper has been closed.
+     */
+    Lease grant(final long durationNanos, final Runnable reclaim) {
+        final Lease lease = new Lease(this, Thread.currentThread(), durationNanos, reclaim);
+        active.incrementAndGet();
+        try {
+            lease.timeout = wheel.schedule(durationNanos, lease);
+        } catch (final IllegalStateException e) {
+            active.decrementAndGet();
+            throw e;
+        }
+        granted.increment();
+        return lease;
+    }
+
+    /**
+     * Advances the timer wheel to the current time.
+     *
+     * @return the number of leases which expired.
+     */
+    int advance() {
+        return wheel.advance();
+    }
+
+    /**
+     * Get the number of leases which have been granted.
+     *
+     * @return the number of leases granted.
+     */
+    public long getGrantedCount() {
+        return granted.sum();
+    }
+
+    /**
+     * Get the number of leases which have been granted,
+     * but have neither been released nor expired.
+     *
+     * @return the number of active leases.
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Get the number of leases which have expired.
+     *
+     * @return the number of expired leases.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Get the number of threads which have been interrupted
+     * because their lease expired.
+     *
+     * @return the number of interrupted threads.
+     */
+    public long getInterruptedCount() {
+        return interrupted.sum();
+    }
+
+    /**
+     * Get the number of expired leases whose resource
+     * could not be released by the reaper.
+     *
+     * @return the number of failures to reclaim a resource.
+     */
+    public long getReclaimFailureCount() {
+        return reclaimFailures.sum();
+    }
+
+    /**
+     * Closes the reaper, stopping its thread.
+     *
+     * Leases which are active when the reaper is closed never expire,
+     * and no further leases may be granted.
+     */
+    @Override
+    public void close() {
+        wheel.close();
+    }
+
+    /**
+     * A lease on a resource, which is either released by its holder,
+     * or expires and is reclaimed by the reaper.
+     */
+    @ThreadSafe
+    static final class Lease implements Runnable {
+        private final LeaseReaper reaper;
+        private final Thread holder;
+        private final long durationNanos;
+        private final Runnable reclaim;
+        private TimerWheel.Timeout timeout;
+        private volatile boolean interrupted = false;
+        @GuardedBy("this") private LeaseExpiredException expiry = null;
+
+        private Lease(final LeaseReaper reaper, final Thread holder, final long durationNanos, final Runnable reclaim) {
+            this.reaper = reaper;
+            this.holder = holder;
+            this.durationNanos = durationNanos;
+            this.reclaim = reclaim;
+        }
+
+        /**
+         * Expires the lease, called by the reaper.
+         */
+        @Override
+        public void run() {
+            reaper.active.decrementAndGet();
+            reaper.expired.increment();
+
+            final LeaseExpiredException e = new LeaseExpiredException("Lease of "
+                    + TimeUnit.NANOSECONDS.toMillis(durationNanos) + "ms expired whilst held by thread: " + holder.getName());
+            e.setStackTrace(holder.getStackTrace());
+
+            // a holder which is already interrupted is left for its own interrupt handling
+            if (reaper.interrupt && !holder.isInterrupted()) {
+                interrupted = true;
+                holder.interrupt();
+                reaper.interrupted.increment();
+            }
+
+            try {
+                reclaim.run();
+            } catch (final RuntimeException | Error re) {
+                reaper.reclaimFailures.increment();
+                e.addSuppressed(re);
+            } finally {
+                // the holder waits for the expiry, so it must be published whatever happens
+                synchronized (this) {
+                    expiry = e;
+                    notifyAll();
+                }
+            }
+
+            reaper.reporter.accept(e);
+        }
+
+        /**
+         * Releases the lease, called by its holder.
+         *
+         * If the lease has not expired, the calling thread remains responsible
+         * for releasing the resource. Otherwise waits for the reaper to reclaim the
+         * resource, clears any interrupt that the reaper made, and throws the expiry.
+         *
+         * @throws LeaseExpiredException if the lease had expired.
+         */
+        void release() {
+            if (timeout.cancel()) {
+                reaper.active.decrementAndGet();
+                return;
+            }
+
+            boolean wasInterrupted = false;
+            final LeaseExpiredException e;
+            synchronized (this) {
+                while (expiry == null) {
+                    try {
+                        wait();
+                    } catch (final InterruptedException ie) {
+                        wasInterrupted = true;
+                    }
+                }
+                e = expiry;
+            }
+
+            if (interrupted) {
+                Thread.interrupted();
+            } else if (wasInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Builder for a {@link LeaseReaper}.
+     */
+    @NotThreadSafe
+    public static class Builder {
+        private long tickNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        private int wheelSize = 512;
+        private boolean interrupt = false;
+        private Consumer<LeaseExpiredException> reporter = null;
+        private LongSupplier nanoClock = System::nanoTime;
+        private boolean worker = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the duration of a tick of the timer wheel,
+         * which is the precision with which leases expire.
+         *
+         * @param tickDuration the tick duration, defaults to 10 milliseconds.
+         * @param unit the unit of {@code tickDuration}.
+         *
+         * @return this
+         */
+        public Builder tickDuration(final long tickDuration, final TimeUnit unit) {
+            if (tickDuration < 1) {
+                throw new IllegalArgumentException("tickDuration must be positive");
+            }
+            this.tickNanos = unit.toNanos(tickDuration);
+            return this;
+        }
+
+        /**
+         * Sets the number of buckets in the timer wheel. Leases which are longer
+         * than the wheel size multiplied by the tick duration are revisited
+         * once per rotation of the wheel until they are due.
+         *
+         * @param wheelSize the number of buckets, rounded up to
+         *     the nearest power of two, defaults to 512.
+         *
+         * @return this
+         */
+        public Builder wheelSize(final int wheelSize) {
+            if (wheelSize < 1 || wheelSize > 1 << 20) {
+                throw new IllegalArgumentException("wheelSize must be between 1 and 1048576");
+            }
+            this.wheelSize = wheelSize;
+            return this;
+        }
+
+        /**
+         * Sets whether the thread which holds a lease is interrupted when the
+         * lease expires; a thread which is already interrupted is left as is.
+         *
+         * @param interrupt true to interrupt the thread, defaults to false.
+         *
+         * @return this
+         */
+        public Builder interrupt(final boolean interrupt) {
+            this.interrupt = interrupt;
+            return this;
+        }
+
+        /**
+         * Sets a function which reports expired leases,
+         * it is called by the reaper's thread.
+         *
+         * @param reporter the reporter, by default expired leases are logged as warnings.
+         *
+         * @return this
+         */
+        public Builder reporter(final Consumer<LeaseExpiredException> reporter) {
+            this.reporter = reporter;
+            return this;
+        }
+
+        Builder nanoClock(final LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        Builder worker(final boolean worker) {
+            this.worker = worker;
+            return this;
+        }
+
+        /**
+         * Builds the reaper, starting its thread.
+         *
+         * @return the reaper.
+         */
+        public LeaseReaper build() {
+            return new LeaseReaper(this);
+        }
+    }
+}
@@ -0,0 +1,689 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of objects (which is thread safe).
+ *
+ * Objects are borrowed by {@link #borrow()} and returned by {@link #release(Object)},
+ * which allows the pool to be used as the acquire and release functions of a
+ * managed resource, e.g.
+ * <pre>{@code
+ *     managed(pool, ManagedPool::borrow, ManagedPool::release).map(parser -> parser.parse(input));
+ * }</pre>
+ *
+ * Returned objects are first placed in a slot chosen by the returning thread,
+ * and only if that slot is occupied, in a shared queue. Borrowing checks the
+ * borrowing thread's slot before the shared queue, so a thread which borrows
+ * and returns repeatedly typically reuses the same object without contention.
+ * Neither borrowing nor returning takes a lock, unless the pool is exhausted
+ * and the borrower must wait for an object to be returned.
+ *
+ * {@link #borrowAsync()} never waits, instead when the pool is exhausted,
+ * the returned future is completed by the thread which next returns an object.
+ *
+ * A borrowed object which is garbage collected without being returned cannot be
+ * destroyed, but its capacity is recovered by the next borrow or return.
+ *
+ * Use {@link #builder(Supplier)} to construct a {@link ManagedPool}.
+ *
+ * @param <T> The type of the pooled objects.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class ManagedPool<T> implements AutoCloseable {
+    private final Supplier<T> factory;
+    private final Predicate<T> validator;
+    private final Consumer<T> destroyer;
+    private final int minSize;
+    private final int maxSize;
+    private final long maxIdleNanos;
+    private final long borrowTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final ResourceLeakDetector<T> leakDetector;
+
+    private final Semaphore permits;
+    private final AtomicReferenceArray<Idle<T>> slots;
+    private final int slotMask;
+    private final ConcurrentLinkedQueue<Idle<T>> shared = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<CompletableFuture<T>> asyncWaiters = new ConcurrentLinkedQueue<>();
+    private final Set<Borrowed> borrowed = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Object> leaked = new ReferenceQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    private ManagedPool(final Builder<T> builder) {
+        this.factory = builder.factory;
+        this.validator = builder.validator;
+        this.destroyer = builder.destroyer;
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.maxIdleNanos = builder.maxIdleNanos;
+        this.borrowTimeoutNanos = builder.borrowTimeoutNanos;
+        this.nanoClock = builder.nanoClock;
+        this.leakDetector = builder.leakDetector;
+
+        this.permits = new Semaphore(maxSize);
+        final int slotCount = builder.slots == 1 ? 1 : Integer.highestOneBit(builder.slots - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.slotMask = slotCount - 1;
+
+        final long now = nanoClock.getAsLong();
+        for (int i = 0; i < minSize; i++) {
+            size.incrementAndGet();
+            shared.offer(new Idle<>(factory.get(), now));
+        }
+    }
+
+    /**
+     * Creates a {@link Builder} for a {@link ManagedPool}.
+     *
+     * @param factory A function which creates new objects for the pool.
+     *
+     * @return the builder
+     *
+     * @param <T> The type of the pooled objects.
+     */
+    public static <T> Builder<T> builder(final Supplier<T> factory) {
+        return new Builder<>(factory);
+    }
+
+    /**
+     * Borrows an object from the pool.
+     *
+     * Reuses an idle object if one is available and valid, otherwise
+     * creates a new object if the pool is below its maximum size, otherwise
+     * waits for up to the borrow timeout for an object to be returned.
+     *
+     * @return the borrowed object, which must be returned by {@link #release(Object)}.
+     *
+     * @throws PoolExhaustedException if no object became available within the borrow timeout.
+     * @throws IllegalStateException if the pool has been closed.
+     */
+    public T borrow() {
+        checkOpen();
+        expungeLeaked();
+        if (!permits.tryAcquire()) {
+            try {
+                if (!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    throw new PoolExhaustedException("Timed out waiting to borrow from pool of " + maxSize);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PoolExhaustedException("Interrupted whilst waiting to borrow from pool", e);
+            }
+        }
+
+        // holding a permit guarantees that an idle object exists, or that a new one may be created
+        try {
+            return track(take());
+        } catch (final RuntimeException | Error e) {
+            releasePermit();
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows an object from the pool without blocking.
+     *
+     * If the pool is exhausted, then the future is completed when
+     * an object is returned to the pool. Cancelling the future
+     * withdraws from waiting for an object.
+     *
+     * @return a future of the borrowed object, which must be returned by {@link #release(Object)}.
+     */
+    public CompletableFuture<T> borrowAsync() {
+        final CompletableFuture<T> waiter = new CompletableFuture<>();
+        if (closed) {
+            waiter.completeExceptionally(new IllegalStateException("ManagedPool is closed"));
+            return waiter;
+        }
+
+        asyncWaiters.offer(waiter);
+        expungeLeaked();
+        // an object may have been returned before we were queued
+        dispatchAsyncWaiters();
+        return waiter;
+    }
+
+    /**
+     * Hands objects to the waiters of {@link #borrowAsync()}, for as long as
+     * there are waiters and the pool is not exhausted.
+     */
+    private void dispatchAsyncWaiters() {
+        while (!asyncWaiters.isEmpty() && permits.tryAcquire()) {
+            final CompletableFuture<T> waiter = asyncWaiters.poll();
+            if (waiter == null) {
+                permits.release();
+                continue;
+            }
+            if (waiter.isDone()) {
+                // cancelled
+                permits.release();
+                continue;
+            }
+
+            final T object;
+            try {
+                object = track(take());
+            } catch (final RuntimeException | Error e) {
+                permits.release();
+                waiter.completeExceptionally(e);
+                continue;
+            }
+            if (!waiter.complete(object)) {
+                // cancelled whilst we were taking an object
+                release(object);
+            }
+        }
+    }
+
+    private T take() {
+        final int home = probe();
+        while (true) {
+            checkOpen();
+
+            Idle<T> idle = slots.getAndSet(home, null);
+            if (idle == null) {
+                idle = shared.poll();
+            }
+            if (idle == null) {
+                idle = steal(home);
+            }
+
+            if (idle != null) {
+                if (validator == null || validator.test(idle.object)) {
+                    return idle.object;
+                }
+                destroy(idle.object);
+                continue;
+            }
+
+            final int current = size.get();
+            if (current < maxSize) {
+                if (size.compareAndSet(current, current + 1)) {
+                    try {
+                        return factory.get();
+                    } catch (final RuntimeException | Error e) {
+                        size.decrementAndGet();
+                        throw e;
+                    }
+                }
+                continue;
+            }
+
+            // an object is being returned, but is not yet visible
+            Thread.yield();
+        }
+    }
+
+    private T track(final T object) {
+        borrowed.add(new Borrowed(object, leaked));
+        if (leakDetector != null) {
+            leakDetector.track(object);
+        }
+        return object;
+    }
+
+    private Idle<T> steal(final int home) {
+        for (int i = 1; i <= slotMask; i++) {
+            final int index = (home + i) & slotMask;
+            if (slots.get(index) != null) {
+                final Idle<T> idle = slots.getAndSet(index, null);
+                if (idle != null) {
+                    return idle;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns an object to the pool.
+     *
+     * Returning {@code null} is a no-op, so that this may be used as the release
+     * function of a managed resource whose acquisition failed.
+     *
+     * @param object the object which was borrowed from the pool.
+     *
+     * @throws IllegalArgumentException if the object is not currently borrowed from this pool,
+     *     e.g. it has already been returned.
+     */
+    public void release(final T object) {
+        if (object == null) {
+            return;
+        }
+        // otherwise a double return, or a foreign object, would grow the pool beyond its maximum size
+        if (!borrowed.remove(new Borrowed(object, null))) {
+            throw new IllegalArgumentException("Object is not borrowed from this pool");
+        }
+        expungeLeaked();
+        if (leakDetector != null) {
+            leakDetector.untrack(object);
+        }
+
+        if (closed) {
+            destroy(object);
+            releasePermit();
+            return;
+        }
+
+        final Idle<T> idle = new Idle<>(object, nanoClock.getAsLong());
+        if (!slots.compareAndSet(probe(), null, idle)) {
+            shared.offer(idle);
+        }
+
+        if (closed) {
+            // raced with close
+            drain();
+        }
+        releasePermit();
+    }
+
+    /**
+     * Returns a permit, and hands it to any waiter of {@link #borrowAsync()},
+     * which may have been queued whilst the permit was held. If the pool
+     * is closed, then the waiter is completed exceptionally.
+     */
+    private void releasePermit() {
+        permits.release();
+        if (!asyncWaiters.isEmpty()) {
+            dispatchAsyncWaiters();
+        }
+    }
+
+    /**
+     * Recovers the capacity of borrowed objects which were
+     * garbage collected without being returned to the pool.
+     */
+    private void expungeLeaked() {
+        Borrowed ref;
+        while ((ref = (Borrowed) leaked.poll()) != null) {
+            // a reference to an object which was returned, and then collected, is no longer in the set
+            if (borrowed.remove(ref)) {
+                size.decrementAndGet();
+                releasePermit();
+            }
+        }
+    }
+
+    /**
+     * Destroys objects which have been idle for longer than the maximum idle
+     * time, whilst the pool is larger than its minimum size.
+     *
+     * Should be called periodically, e.g. from a scheduled executor.
+     *
+     * @return the number of objects which were evicted.
+     */
+    public int evictIdle() {
+        if (maxIdleNanos < 0) {
+            return 0;
+        }
+
+        final long now = nanoClock.getAsLong();
+        int evicted = 0;
+        for (int i = 0; i <= slotMask; i++) {
+            final Idle<T> idle = slots.get(i);
+            if (idle != null && now - idle.since > maxIdleNanos && slots.compareAndSet(i, idle, null)) {
+                if (!evict(idle)) {
+                    return evicted;
+                }
+                evicted++;
+            }
+        }
+        for (final Iterator<Idle<T>> it = shared.iterator(); it.hasNext(); ) {
+            final Idle<T> idle = it.next();
+            if (now - idle.since > maxIdleNanos && shared.remove(idle)) {
+                if (!evict(idle)) {
+                    // the idle object was put back at the tail, where this iterator would find it again
+                    return evicted;
+                }
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Evicts an idle object which has been removed from the pool, unless
+     * the pool is at its minimum size, in which case it is put back.
+     *
+     * @return true if the object was evicted, false if the pool is at its minimum size.
+     */
+    private boolean evict(final Idle<T> idle) {
+        // reserve the eviction, so that concurrent evictions cannot shrink the pool below its minimum size
+        int current;
+        do {
+            current = size.get();
+            if (current <= minSize) {
+                shared.offer(idle);
+                return false;
+            }
+        } while (!size.compareAndSet(current, current - 1));
+
+        dispose(idle.object);
+        return true;
+    }
+
+    /**
+     * Closes the pool, destroying all idle objects. Objects
+     * which are currently borrowed are destroyed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        drain();
+
+        CompletableFuture<T> waiter;
+        while ((waiter = asyncWaiters.poll()) != null) {
+            waiter.completeExceptionally(new IllegalStateException("ManagedPool is closed"));
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i <= slotMask; i++) {
+            final Idle<T> idle = slots.getAndSet(i, null);
+            if (idle != null) {
+                destroy(idle.object);
+            }
+        }
+        Idle<T> idle;
+        while ((idle = shared.poll()) != null) {
+            destroy(idle.object);
+        }
+    }
+
+    private void destroy(final T object) {
+        size.decrementAndGet();
+        dispose(object);
+    }
+
+    private void dispose(final T object) {
+        if (destroyer != null) {
+            destroyer.accept(object);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("ManagedPool is closed");
+        }
+    }
+
+    private int probe() {
+        // mix the bits of the thread id, as ids are typically sequential
+        long h = Thread.currentThread().getId();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & slotMask;
+    }
+
+    /**
+     * Get the number of objects in the pool, both borrowed and idle.
+     *
+     * @return the size of the pool.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Get the number of objects which are currently borrowed.
+     *
+     * @return the number of borrowed objects.
+     */
+    public int getBorrowedCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * Get the number of idle objects in the pool.
+     *
+     * @return the number of idle objects.
+     */
+    public int getIdleCount() {
+        return Math.max(0, size.get() - getBorrowedCount());
+    }
+
+    @Immutable
+    private static final class Idle<T> {
+        final T object;
+        final long since;
+
+        Idle(final T object, final long since) {
+            this.object = object;
+            this.since = since;
+        }
+    }
+
+    /**
+     * Identifies a borrowed object by reference, as pooled objects need not
+     * implement equality. The object is weakly referenced, so that a borrowed
+     * object which is never returned may still be detected as a leak, and
+     * so that its capacity may be recovered once it is garbage collected.
+     */
+    private static final class Borrowed extends WeakReference<Object> {
+        final int hash;
+
+        Borrowed(final Object object, final ReferenceQueue<Object> queue) {
+            super(object, queue);
+            this.hash = System.identityHashCode(object);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof Borrowed)) {
+                return false;
+            }
+            final Object object = get();
+            return object != null && object == ((Borrowed) other).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Builder for a {@link ManagedPool}.
+     *
+     * @param <T> The type of the pooled objects.
+     */
+    @NotThreadSafe
+    public static class Builder<T> {
+        private final Supplier<T> factory;
+        private Predicate<T> validator = null;
+        private Consumer<T> destroyer = null;
+        private int minSize = 0;
+        private int maxSize = Runtime.getRuntime().availableProcessors();
+        private long maxIdleNanos = -1;
+        private long borrowTimeoutNanos = Long.MAX_VALUE;
+        private int slots = Runtime.getRuntime().availableProcessors();
+        private LongSupplier nanoClock = System::nanoTime;
+        private ResourceLeakDetector<T> leakDetector = null;
+
+        private Builder(final Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * Sets the minimum number of objects in the pool, which are
+         * created when the pool is built and are never evicted.
+         *
+         * @param minSize the minimum size, defaults to 0.
+         *
+         * @return this
+         */
+        public Builder<T> minSize(final int minSize) {
+            if (minSize < 0) {
+                throw new IllegalArgumentException("minSize must not be negative");
+            }
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of objects in the pool.
+         *
+         * @param maxSize the maximum size, defaults to the number of available processors.
+         *
+         * @return this
+         */
+        public Builder<T> maxSize(final int maxSize) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("maxSize must be at least 1");
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets a function which validates an idle object before it is borrowed,
+         * invalid objects are destroyed.
+         *
+         * @param validator the validation function.
+         *
+         * @return this
+         */
+        public Builder<T> validator(final Predicate<T> validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        /**
+         * Sets a function which destroys objects that are
+         * invalid, evicted, or idle when the pool is closed.
+         *
+         * @param destroyer the destroy function.
+         *
+         * @return this
+         */
+        public Builder<T> destroyer(final Consumer<T> destroyer) {
+            this.destroyer = destroyer;
+            return this;
+        }
+
+        /**
+         * Sets the maximum time that an object may be idle
+         * before it may be evicted by {@link ManagedPool#evictIdle()}.
+         *
+         * @param maxIdle the maximum idle time, by default objects are never evicted.
+         * @param unit the unit of {@code maxIdle}.
+         *
+         * @return this
+         */
+        public Builder<T> maxIdle(final long maxIdle, final TimeUnit unit) {
+            this.maxIdleNanos = unit.toNanos(maxIdle);
+            return this;
+        }
+
+        /**
+         * Sets the maximum time to wait to borrow an object when the pool is exhausted.
+         *
+         * @param borrowTimeout the borrow timeout, by default waits forever.
+         * @param unit the unit of {@code borrowTimeout}.
+         *
+         * @return this
+         */
+        public Builder<T> borrowTimeout(final long borrowTimeout, final TimeUnit unit) {
+            this.borrowTimeoutNanos = unit.toNanos(borrowTimeout);
+            return this;
+        }
+
+        /**
+         * Sets the number of thread-affine slots for returned objects.
+         *
+         * @param slots the number of slots, rounded up to the nearest power
+         *   of two, defaults to the number of available processors.
+         *
+         * @return this
+         */
+        public Builder<T> slots(final int slots) {
+            if (slots < 1 || slots > 1 << 16) {
+                throw new IllegalArgumentException("slots must be between 1 and 65536");
+            }
+            this.slots = slots;
+            return this;
+        }
+
+        /**
+         * Sets a detector for borrowed objects which are
+         * garbage collected without being returned to the pool.
+         *
+         * @param leakDetector the leak detector.
+         *
+         * @return this
+         */
+        public Builder<T> leakDetector(final ResourceLeakDetector<T> leakDetector) {
+            this.leakDetector = leakDetector;
+            return this;
+        }
+
+        Builder<T> nanoClock(final LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        /**
+         * Builds the pool, creating the minimum number of objects.
+         *
+         * @return the pool.
+         */
+        public ManagedPool<T> build() {
+            if (minSize > maxSize) {
+                throw new IllegalArgumentException("minSize must not be greater than maxSize");
+            }
+            return new ManagedPool<>(this);
+        }
+    }
+}
@@ -26,7 +26,20 @@
  */
 package com.evolvedbinary.j8fu.managed;
 
+import net.jcip.annotations.Immutable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -39,27 +52,462 @@ import java.util.function.Function;
  * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
  */
 public class ManagedResource<T, AR> {
+    private static final long DEFAULT_MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long DEFAULT_MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
     private final T subject;
     private final Function<T, AR> acquireFn;
     private final BiConsumer<T, AR> releaseFn;
+    private final ResourceMetrics metrics;
+    private final LeaseReaper leaseReaper;
+    private final long leaseNanos;
+    private final Function<T, Optional<AR>> tryAcquireFn;
+    private final KeepAlive<T, AR> keepAlive;
 
-    private ManagedResource(final T subject, final Function<T, AR> acquireFn, final BiConsumer<T, AR> releaseFn) {
+    private ManagedResource(final T subject, final Function<T, AR> acquireFn, final BiConsumer<T, AR> releaseFn,
+            final ResourceMetrics metrics, final LeaseReaper leaseReaper, final long leaseNanos,
+            final Function<T, Optional<AR>> tryAcquireFn, final KeepAlive<T, AR> keepAlive) {
         this.subject = subject;
         this.acquireFn = acquireFn;
         this.releaseFn = releaseFn;
+        this.metrics = metrics;
+        this.leaseReaper = leaseReaper;
+        this.leaseNanos = leaseNanos;
+        this.tryAcquireFn = tryAcquireFn;
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Returns a managed resource which, each time that the resource is acquired,
+     * is granted a lease by {@code leaseReaper}. If the mapper has not completed when
+     * the lease expires, the reaper releases the resource, and when the mapper does
+     * complete, {@link #map(Function)} throws a {@link LeaseExpiredException}
+     * in place of the mapper's result. If the mapper instead throws, then its
+     * exception is thrown with the {@link LeaseExpiredException} suppressed.
+     *
+     * @param leaseReaper the reaper which reclaims resources whose leases have expired.
+     * @param leaseDuration the duration of the lease.
+     * @param unit the unit of {@code leaseDuration}.
+     *
+     * @return the managed resource.
+     */
+    public ManagedResource<T, AR> withLease(final LeaseReaper leaseReaper, final long leaseDuration, final TimeUnit unit) {
+        return new ManagedResource<>(subject, acquireFn, releaseFn, metrics, leaseReaper, unit.toNanos(leaseDuration), tryAcquireFn, keepAlive);
+    }
+
+    /**
+     * Returns a managed resource which may also be acquired without waiting,
+     * which is used when acquiring it as one of {@link #all(List)} with
+     * {@link All#tryAcquire(long, TimeUnit)}.
+     *
+     * @param tryAcquireFn a function which acquires the resource from the subject
+     *     if it is immediately available, or otherwise returns empty.
+     *
+     * @return the managed resource.
+     */
+    public ManagedResource<T, AR> withTryAcquire(final Function<T, Optional<AR>> tryAcquireFn) {
+        return new ManagedResource<>(subject, acquireFn, releaseFn, metrics, leaseReaper, leaseNanos, tryAcquireFn, keepAlive);
+    }
+
+    /**
+     * Returns a managed resource which, when {@link #map(Function)} completes
+     * normally, keeps the resource alive in {@code keepAlive} rather than releasing
+     * it. The next call to {@link #map(Function)} with the same subject reuses the
+     * kept alive resource rather than acquiring another. A resource which is not
+     * reused within the idle timeout of {@code keepAlive} is released by its sweeper.
+     *
+     * @param keepAlive the cache of resources which are kept alive.
+     *
+     * @return the managed resource.
+     */
+    public ManagedResource<T, AR> withKeepAlive(final KeepAlive<T, AR> keepAlive) {
+        return new ManagedResource<>(subject, acquireFn, releaseFn, metrics, leaseReaper, leaseNanos, tryAcquireFn, keepAlive);
     }
 
     public <U> U map(final Function<AR, U> mapper) {
+        final long start = metrics != null ? System.nanoTime() : 0;
+        long acquired = 0;
+        boolean held = false;
         AR acquireResult = null;
+        LeaseReaper.Lease lease = null;
+        final KeepAlive.Slot<T, AR> keepAliveSlot = keepAlive != null ? keepAlive.slot(subject, releaseFn) : null;
+        boolean completed = false;
+        Throwable failure = null;
         try {
-            acquireResult = acquireFn.apply(subject);
-            return mapper.apply(acquireResult);
+            if (keepAliveSlot != null) {
+                acquireResult = keepAliveSlot.take();
+            }
+            if (acquireResult == null) {
+                acquireResult = acquireFn.apply(subject);
+            }
+            if (metrics != null) {
+                acquired = System.nanoTime();
+                held = true;
+                metrics.getWaitTime().record(acquired - start);
+            }
+            if (leaseReaper != null) {
+                final AR leased = acquireResult;
+                lease = leaseReaper.grant(leaseNanos, () -> releaseFn.accept(subject, leased));
+            }
+            final U result = mapper.apply(acquireResult);
+            completed = true;
+            return result;
+        } catch (final Throwable e) {
+            failure = e;
+            throw e;
         } finally {
-            releaseFn.accept(subject, acquireResult);
+            if (held) {
+                metrics.getHoldTime().record(System.nanoTime() - acquired);
+            }
+            boolean reclaimed = false;
+            if (lease != null) {
+                try {
+                    lease.release();
+                } catch (final LeaseExpiredException e) {
+                    // the reaper has already released the resource
+                    if (failure == null) {
+                        throw e;
+                    }
+                    // the failure of the mapper takes precedence
+                    failure.addSuppressed(e);
+                    reclaimed = true;
+                }
+            }
+            if (!reclaimed && (!completed || keepAliveSlot == null || !keepAliveSlot.offer(acquireResult))) {
+                releaseFn.accept(subject, acquireResult);
+            }
         }
     }
 
     public static <T, AR> ManagedResource<T, AR> managed(final T subject, final Function<T, AR> acquireFn, final BiConsumer<T, AR> releaseFn) {
-        return new ManagedResource<>(subject, acquireFn, releaseFn);
+        return new ManagedResource<>(subject, acquireFn, releaseFn, null, null, 0, null, null);
+    }
+
+    /**
+     * Similar to {@link #managed(Object, Function, BiConsumer)}, but records the
+     * wait time and hold time of each use of the resource in {@code metrics}.
+     *
+     * @param subject the subject from which the resource is acquired.
+     * @param acquireFn a function which acquires the resource from the subject.
+     * @param releaseFn a function which releases the resource.
+     * @param metrics the metrics to record the wait time and hold time in.
+     *
+     * @return the managed resource.
+     */
+    public static <T, AR> ManagedResource<T, AR> managed(final T subject, final Function<T, AR> acquireFn, final BiConsumer<T, AR> releaseFn, final ResourceMetrics metrics) {
+        return new ManagedResource<>(subject, acquireFn, releaseFn, metrics, null, 0, null, null);
+    }
+
+    /**
+     * Similar to {@link #all(List)}.
+     *
+     * @param <T> the type of the subjects.
+     * @param <AR> the type of the resources.
+     * @param resources the managed resources.
+     *
+     * @return the managed resources.
+     */
+    @SafeVarargs
+    public static <T, AR> All<T, AR> all(final ManagedResource<T, AR>... resources) {
+        // copied element by element, as passing the array on to another varargs method could pollute the heap
+        final List<ManagedResource<T, AR>> list = new ArrayList<>(resources.length);
+        for (final ManagedResource<T, AR> resource : resources) {
+            list.add(resource);
+        }
+        return new All<>(list, null, -1, DEFAULT_MIN_BACKOFF_NANOS, DEFAULT_MAX_BACKOFF_NANOS);
+    }
+
+    /**
+     * Returns managed resources which are all acquired before,
+     * and all released after, a mapping function.
+     *
+     * The resources are acquired in a canonical order, by default the order of
+     * the identity hash codes of their subjects, and released in the reverse order.
+     * As every caller which acquires an overlapping set of subjects does so in the
+     * same order, no two callers can deadlock waiting for each other's resources.
+     *
+     * @param <T> the type of the subjects.
+     * @param <AR> the type of the resources.
+     * @param resources the managed resources.
+     *
+     * @return the managed resources.
+     *
+     * @throws IllegalArgumentException if a subject is given more than once, or if
+     *     a resource has a lease or a keep alive, see {@link All}.
+     */
+    public static <T, AR> All<T, AR> all(final List<ManagedResource<T, AR>> resources) {
+        return new All<>(new ArrayList<>(resources), null, -1, DEFAULT_MIN_BACKOFF_NANOS, DEFAULT_MAX_BACKOFF_NANOS);
+    }
+
+    /**
+     * Several managed resources which are acquired in a canonical order.
+     *
+     * By default each resource is acquired by its acquire function, which may wait.
+     * When {@link #tryAcquire(long, TimeUnit)} is set, resources which have a
+     * try acquire function, see {@link ManagedResource#withTryAcquire(Function)},
+     * are instead acquired without waiting. If one is unavailable then those
+     * already acquired are released, and after a randomized exponential
+     * backoff, acquisition starts again, so that a caller never holds some
+     * resources whilst waiting for another.
+     *
+     * Subjects whose order is tied, i.e. which have the same identity hash code, and
+     * are equal according to the comparator if there is one, are acquired whilst
+     * holding a global tie-breaking lock. The lock is held only whilst acquiring the
+     * tied resources, and a caller which already holds other resources does not wait
+     * for it, instead it releases them and backs off as if a resource were unavailable.
+     *
+     * The wait time and hold time of each resource are recorded in its metrics, if it
+     * has any. Leases and keep alives apply to a single resource, and so resources which
+     * have either, see {@link ManagedResource#withLease(LeaseReaper, long, TimeUnit)}
+     * and {@link ManagedResource#withKeepAlive(KeepAlive)}, are rejected.
+     *
+     * @param <T> the type of the subjects.
+     * @param <AR> the type of the resources.
+     */
+    @Immutable
+    public static final class All<T, AR> {
+        private static final ReentrantLock TIE_LOCK = new ReentrantLock();
+
+        private final List<ManagedResource<T, AR>> resources;
+        private final Comparator<? super T> comparator;
+        private final int[] order;
+        // for the position in the order which starts a tied run, the position which ends it, otherwise -1
+        private final int[] tieEnds;
+        private final long timeoutNanos;
+        private final long minBackoffNanos;
+        private final long maxBackoffNanos;
+
+        private All(final List<ManagedResource<T, AR>> resources, final Comparator<? super T> comparator,
+                final long timeoutNanos, final long minBackoffNanos, final long maxBackoffNanos) {
+            this.resources = resources;
+            this.comparator = comparator;
+            this.timeoutNanos = timeoutNanos;
+            this.minBackoffNanos = minBackoffNanos;
+            this.maxBackoffNanos = maxBackoffNanos;
+
+            final Set<Object> subjects = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (final ManagedResource<T, AR> resource : resources) {
+                if (!subjects.add(resource.subject)) {
+                    throw new IllegalArgumentException("The subject " + resource.subject + " is given more than once");
+                }
+                if (resource.leaseReaper != null || resource.keepAlive != null) {
+                    throw new IllegalArgumentException("A resource with a lease or a keep alive cannot be acquired with others");
+                }
+            }
+
+            final Comparator<Integer> canonical = canonical(resources, comparator);
+            final Integer[] sorted = new Integer[resources.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, canonical);
+
+            this.order = new int[sorted.length];
+            this.tieEnds = new int[sorted.length];
+            int runStart = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                order[i] = sorted[i];
+                tieEnds[i] = -1;
+                if (i > 0 && canonical.compare(sorted[i - 1], sorted[i]) != 0) {
+                    runStart = i;
+                }
+                if (i > runStart) {
+                    tieEnds[runStart] = i;
+                }
+            }
+        }
+
+        private static <T, AR> Comparator<Integer> canonical(final List<ManagedResource<T, AR>> resources,
+                final Comparator<? super T> comparator) {
+            final Comparator<Integer> byIdentity = Comparator.comparingInt(i -> System.identityHashCode(resources.get(i).subject));
+            if (comparator == null) {
+                return byIdentity;
+            }
+            final Comparator<Integer> byComparator = (i, j) -> comparator.compare(resources.get(i).subject, resources.get(j).subject);
+            return byComparator.thenComparing(byIdentity);
+        }
+
+        /**
+         * Orders the acquisition of the resources by their subjects.
+         *
+         * @param comparator the total order of the subjects, which should be
+         *     the same for all callers which acquire the same subjects.
+         *
+         * @return the managed resources.
+         */
+        public All<T, AR> ordered(final Comparator<? super T> comparator) {
+            return new All<>(resources, comparator, timeoutNanos, minBackoffNanos, maxBackoffNanos);
+        }
+
+        /**
+         * Acquires resources which have a try acquire function without waiting,
+         * backing off and trying again when any are unavailable.
+         *
+         * @param timeout the maximum time to keep trying, after which a
+         *     {@link ResourceUnavailableException} is thrown.
+         * @param unit the unit of {@code timeout}.
+         *
+         * @return the managed resources.
+         */
+        public All<T, AR> tryAcquire(final long timeout, final TimeUnit unit) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("timeout must not be negative");
+            }
+            return new All<>(resources, comparator, unit.toNanos(timeout), minBackoffNanos, maxBackoffNanos);
+        }
+
+        /**
+         * Sets the bounds of the randomized exponential backoff between attempts
+         * when {@link #tryAcquire(long, TimeUnit)} is set.
+         *
+         * @param minBackoff the initial backoff, defaults to 10 microseconds.
+         * @param maxBackoff the maximum backoff, defaults to 10 milliseconds.
+         * @param unit the unit of {@code minBackoff} and {@code maxBackoff}.
+         *
+         * @return the managed resources.
+         */
+        public All<T, AR> backoff(final long minBackoff, final long maxBackoff, final TimeUnit unit) {
+            if (minBackoff < 1 || maxBackoff < minBackoff) {
+                throw new IllegalArgumentException("minBackoff must be positive, and not greater than maxBackoff");
+            }
+            return new All<>(resources, comparator, timeoutNanos, unit.toNanos(minBackoff), unit.toNanos(maxBackoff));
+        }
+
+        /**
+         * Acquires all of the resources, applies the mapper,
+         * and then releases all of the resources.
+         *
+         * @param <U> the type of the result of the mapper.
+         * @param mapper the function which uses the resources, they are given in
+         *     the same order as the managed resources were given to {@link #all(List)}.
+         *
+         * @return the result of the mapper.
+         *
+         * @throws ResourceUnavailableException if the resources could not be acquired
+         *     within the timeout set by {@link #tryAcquire(long, TimeUnit)}.
+         */
+        @SuppressWarnings("unchecked")
+        public <U> U map(final Function<List<AR>, U> mapper) {
+            final Object[] acquired = new Object[order.length];
+            final long[] acquiredAt = new long[order.length];
+            acquireAll(acquired, acquiredAt);
+
+            Throwable failure = null;
+            try {
+                return mapper.apply(Collections.unmodifiableList(Arrays.asList((AR[]) acquired)));
+            } catch (final RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                release(acquired, acquiredAt, order.length, failure);
+            }
+        }
+
+        private void acquireAll(final Object[] acquired, final long[] acquiredAt) {
+            final boolean trying = timeoutNanos >= 0;
+            final long start = trying ? System.nanoTime() : 0;
+            long backoff = minBackoffNanos;
+
+            while (true) {
+                int count = 0;
+                int tieEnd = -1;
+                try {
+                    for (; count < order.length; count++) {
+                        if (tieEnds[count] >= 0) {
+                            // waiting for the tie lock whilst holding resources could deadlock with its holder
+                            if (count == 0) {
+                                TIE_LOCK.lock();
+                            } else if (!TIE_LOCK.tryLock()) {
+                                break;
+                            }
+                            tieEnd = tieEnds[count];
+                        }
+
+                        final int index = order[count];
+                        final ManagedResource<T, AR> resource = resources.get(index);
+                        final long acquireStart = resource.metrics != null ? System.nanoTime() : 0;
+                        if (trying && resource.tryAcquireFn != null) {
+                            final Optional<AR> maybeAcquired = resource.tryAcquireFn.apply(resource.subject);
+                            if (!maybeAcquired.isPresent()) {
+                                break;
+                            }
+                            acquired[index] = maybeAcquired.get();
+                        } else {
+                            acquired[index] = resource.acquireFn.apply(resource.subject);
+                        }
+                        if (resource.metrics != null) {
+                            acquiredAt[index] = System.nanoTime();
+                            resource.metrics.getWaitTime().record(acquiredAt[index] - acquireStart);
+                        }
+
+                        if (count == tieEnd) {
+                            TIE_LOCK.unlock();
+                            tieEnd = -1;
+                        }
+                    }
+                } catch (final RuntimeException | Error e) {
+                    release(acquired, acquiredAt, count, e);
+                    throw e;
+                } finally {
+                    if (tieEnd >= 0) {
+                        TIE_LOCK.unlock();
+                    }
+                }
+
+                if (count == order.length) {
+                    return;
+                }
+
+                // one was unavailable, so release the others rather than hold them whilst waiting
+                release(acquired, acquiredAt, count, null);
+
+                final long remaining = trying ? timeoutNanos - (System.nanoTime() - start) : Long.MAX_VALUE;
+                if (remaining <= 0) {
+                    throw new ResourceUnavailableException("Unable to acquire all " + order.length + " resources within "
+                            + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms");
+                }
+                LockSupport.parkNanos(Math.min(ThreadLocalRandom.current().nextLong(backoff) + 1, remaining));
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new ResourceUnavailableException("Interrupted whilst acquiring " + order.length + " resources");
+                }
+                backoff = Math.min(backoff << 1, maxBackoffNanos);
+            }
+        }
+
+        /**
+         * Releases the first {@code count} acquired resources in the reverse of the canonical order.
+         *
+         * Every resource is released even if releasing another fails. If {@code failure}
+         * is given, then any release failures are added to it as suppressed, otherwise
+         * the first release failure is thrown.
+         */
+        @SuppressWarnings("unchecked")
+        private void release(final Object[] acquired, final long[] acquiredAt, final int count, final Throwable failure) {
+            RuntimeException releaseFailure = null;
+            for (int i = count - 1; i >= 0; i--) {
+                final int index = order[i];
+                final ManagedResource<T, AR> resource = resources.get(index);
+                final AR acquiredResource = (AR) acquired[index];
+                acquired[index] = null;
+                if (resource.metrics != null) {
+                    resource.metrics.getHoldTime().record(System.nanoTime() - acquiredAt[index]);
+                }
+                try {
+                    resource.releaseFn.accept(resource.subject, acquiredResource);
+                } catch (final RuntimeException e) {
+                    if (failure != null) {
+                        failure.addSuppressed(e);
+                    } else if (releaseFailure == null) {
+                        releaseFailure = e;
+                    } else {
+                        releaseFailure.addSuppressed(e);
+                    }
+                }
+            }
+            if (releaseFailure != null) {
+                throw releaseFailure;
+            }
+        }
     }
 }
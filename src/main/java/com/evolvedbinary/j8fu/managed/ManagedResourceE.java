@@ -38,24 +38,52 @@ public class ManagedResourceE<T, AR, AE extends Exception, RE extends Exception>
     private final T subject;
     private final FunctionE<T, AR, AE> acquireFn;
     private final BiConsumerE<T, AR, RE> releaseFn;
+    private final ResourceMetrics metrics;
 
-    private ManagedResourceE(final T subject, final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn) {
+    private ManagedResourceE(final T subject, final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn, final ResourceMetrics metrics) {
         this.subject = subject;
         this.acquireFn = acquireFn;
         this.releaseFn = releaseFn;
+        this.metrics = metrics;
     }
 
     public <U> U map(final Function<AR, U> mapper) throws AE, RE {
+        final long start = metrics != null ? System.nanoTime() : 0;
+        long acquired = 0;
+        boolean held = false;
         AR acquireResult = null;
         try {
              acquireResult = acquireFn.apply(subject);
+            if (metrics != null) {
+                acquired = System.nanoTime();
+                held = true;
+                metrics.getWaitTime().record(acquired - start);
+            }
             return mapper.apply(acquireResult);
         } finally {
+            if (held) {
+                metrics.getHoldTime().record(System.nanoTime() - acquired);
+            }
             releaseFn.accept(subject, acquireResult);
         }
     }
 
     public static <T, AR, AE extends Exception, RE extends Exception> ManagedResourceE<T, AR, AE, RE> managedE(final T subject, final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn) {
-        return new ManagedResourceE<>(subject, acquireFn, releaseFn);
+        return new ManagedResourceE<>(subject, acquireFn, releaseFn, null);
+    }
+
+    /**
+     * Similar to {@link #managedE(Object, FunctionE, BiConsumerE)}, but records the
+     * wait time and hold time of each use of the resource in {@code metrics}.
+     *
+     * @param subject the subject from which the resource is acquired.
+     * @param acquireFn a function which acquires the resource from the subject.
+     * @param releaseFn a function which releases the resource.
+     * @param metrics the metrics to record the wait time and hold time in.
+     *
+     * @return the managed resource.
+     */
+    public static <T, AR, AE extends Exception, RE extends Exception> ManagedResourceE<T, AR, AE, RE> managedE(final T subject, final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn, final ResourceMetrics metrics) {
+        return new ManagedResourceE<>(subject, acquireFn, releaseFn, metrics);
     }
 }
@@ -40,11 +40,13 @@ public class ManagedResourceEither<T, AR, AE extends Exception, RE extends Excep
     private final T subject;
     private final FunctionE<T, AR, AE> acquireFn;
     private final BiConsumerE<T, AR, RE> releaseFn;
+    private final ResourceMetrics metrics;
 
-    private ManagedResourceEither(final T subject, final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn) {
+    private ManagedResourceEither(final T subject, final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn, final ResourceMetrics metrics) {
         this.subject = subject;
         this.acquireFn = acquireFn;
         this.releaseFn = releaseFn;
+        this.metrics = metrics;
     }
 
     public <U, UE extends Exception> Either<List<Exception>, U> map(final FunctionE<AR, U, UE> mapper) {
@@ -52,9 +54,17 @@ public class ManagedResourceEither<T, AR, AE extends Exception, RE extends Excep
         Exception mapperException = null;
         AR acquireResult = null;
         U mapResult = null;
+        final long start = metrics != null ? System.nanoTime() : 0;
+        long acquired = 0;
+        boolean held = false;
         try {
             try {
                 acquireResult = acquireFn.apply(subject);
+                if (metrics != null) {
+                    acquired = System.nanoTime();
+                    held = true;
+                    metrics.getWaitTime().record(acquired - start);
+                }
 
                 try {
                     mapResult = mapper.apply(acquireResult);
@@ -66,6 +76,9 @@ public class ManagedResourceEither<T, AR, AE extends Exception, RE extends Excep
                 acquireException = e;
             }
         } finally {
+            if (held) {
+                metrics.getHoldTime().record(System.nanoTime() - acquired);
+            }
             try {
                 releaseFn.accept(subject, acquireResult);
                 if(acquireException != null) {
@@ -88,6 +101,21 @@ public class ManagedResourceEither<T, AR, AE extends Exception, RE extends Excep
     }
 
     public static <T, AR, AE extends Exception, RE extends Exception> ManagedResourceEither<T, AR, AE, RE> managedEither(final T subject, final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn) {
-        return new ManagedResourceEither<>(subject, acquireFn, releaseFn);
+        return new ManagedResourceEither<>(subject, acquireFn, releaseFn, null);
+    }
+
+    /**
+     * Similar to {@link #managedEither(Object, FunctionE, BiConsumerE)}, but records the
+     * wait time and hold time of each use of the resource in {@code metrics}.
+     *
+     * @param subject the subject from which the resource is acquired.
+     * @param acquireFn a function which acquires the resource from the subject.
+     * @param releaseFn a function which releases the resource.
+     * @param metrics the metrics to record the wait time and hold time in.
+     *
+     * @return the managed resource.
+     */
+    public static <T, AR, AE extends Exception, RE extends Exception> ManagedResourceEither<T, AR, AE, RE> managedEither(final T subject, final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn, final ResourceMetrics metrics) {
+        return new ManagedResourceEither<>(subject, acquireFn, releaseFn, metrics);
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A report of a resource which was garbage collected
+ * without having been released.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@Immutable
+public final class ResourceLeak {
+    private final String detectorName;
+    private final String resourceType;
+    private final Throwable acquisitionTrace;
+
+    ResourceLeak(final String detectorName, final String resourceType, final Throwable acquisitionTrace) {
+        this.detectorName = detectorName;
+        this.resourceType = resourceType;
+        this.acquisitionTrace = acquisitionTrace;
+    }
+
+    /**
+     * Get the name of the detector which detected the leak.
+     *
+     * @return the name of the detector.
+     */
+    public String getDetectorName() {
+        return detectorName;
+    }
+
+    /**
+     * Get the class name of the leaked resource.
+     *
+     * @return the class name of the leaked resource.
+     */
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    /**
+     * Get the stack trace of where the leaked resource was acquired.
+     *
+     * @return the acquisition stack trace, or null if the detector's
+     *   level does not record stack traces.
+     */
+    public Throwable getAcquisitionTrace() {
+        return acquisitionTrace;
+    }
+
+    @Override
+    public String toString() {
+        return "Resource leak detected by " + detectorName + ": " + resourceType
+                + " was garbage collected without being released"
+                + (acquisitionTrace == null ? "" : ", see the acquisition trace");
+    }
+}
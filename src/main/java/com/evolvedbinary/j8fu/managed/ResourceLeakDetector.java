@@ -0,0 +1,298 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A detector of resources which were garbage collected without being released (which is thread safe).
+ *
+ * A sample of acquired resources are tracked by {@link #track(Object)}, and untracked
+ * when they are released by {@link #untrack(Object)}. A tracked resource is
+ * phantom referenced, so when it is garbage collected whilst still being tracked,
+ * a {@link ResourceLeak} is reported. Leaks are reported by the thread which
+ * next calls {@link #track(Object)}.
+ *
+ * The {@link DetectionLevel} trades the cost of detection against its coverage. At
+ * {@link DetectionLevel#DISABLED} no work is done when tracking or untracking.
+ *
+ * The default level and sampling interval may be set by the system properties
+ * {@value #LEVEL_PROPERTY} and {@value #SAMPLING_INTERVAL_PROPERTY}.
+ *
+ * @param <T> The type of the resources.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+public class ResourceLeakDetector<T> {
+
+    /**
+     * The level of leak detection.
+     */
+    public enum DetectionLevel {
+        /**
+         * No resources are tracked.
+         */
+        DISABLED,
+
+        /**
+         * A sample of resources are tracked, without recording where they were acquired.
+         */
+        SIMPLE,
+
+        /**
+         * A sample of resources are tracked, recording the stack trace of where they were acquired.
+         */
+        ADVANCED,
+
+        /**
+         * All resources are tracked, recording the stack trace of where they were acquired.
+         */
+        PARANOID
+    }
+
+    // declared before the defaults, as it is used whilst they are initialised
+    private static final Logger LOG = Logger.getLogger(ResourceLeakDetector.class.getName());
+
+    /**
+     * The system property which sets the default {@link DetectionLevel}.
+     */
+    public static final String LEVEL_PROPERTY = "com.evolvedbinary.j8fu.managed.leakDetection.level";
+
+    /**
+     * The system property which sets the default sampling interval.
+     */
+    public static final String SAMPLING_INTERVAL_PROPERTY = "com.evolvedbinary.j8fu.managed.leakDetection.samplingInterval";
+
+    /**
+     * The default level, from the system property {@value #LEVEL_PROPERTY}, or {@link DetectionLevel#DISABLED}
+     * if the property is not set or is not the name of a level.
+     */
+    public static final DetectionLevel DEFAULT_LEVEL = parseLevel(System.getProperty(LEVEL_PROPERTY));
+
+    /**
+     * The default sampling interval, from the system property {@value #SAMPLING_INTERVAL_PROPERTY}, or 128.
+     */
+    public static final int DEFAULT_SAMPLING_INTERVAL = Integer.getInteger(SAMPLING_INTERVAL_PROPERTY, 128);
+
+    private final String name;
+    private final DetectionLevel level;
+    private final int samplingInterval;
+    private final Consumer<ResourceLeak> reporter;
+
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final ConcurrentHashMap<Integer, Tracker> tracked = new ConcurrentHashMap<>();
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     * Parses the name of a {@link DetectionLevel}, ignoring case.
+     *
+     * @param value the name of the level, may be null.
+     *
+     * @return the level, or {@link DetectionLevel#DISABLED} if the value is null or is not the name of a level.
+     */
+    static DetectionLevel parseLevel(final String value) {
+        if (value == null) {
+            return DetectionLevel.DISABLED;
+        }
+        try {
+            return DetectionLevel.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (final IllegalArgumentException e) {
+            LOG.warning("Unknown value for " + LEVEL_PROPERTY + ": '" + value + "', leak detection is disabled");
+            return DetectionLevel.DISABLED;
+        }
+    }
+
+    /**
+     * Similar to {@link #ResourceLeakDetector(String, DetectionLevel, int, Consumer)}
+     * with the {@link #DEFAULT_LEVEL}, {@link #DEFAULT_SAMPLING_INTERVAL},
+     * and a reporter which logs leaks as warnings.
+     *
+     * @param name the name of the detector, e.g. the type of resource, for reporting.
+     */
+    public ResourceLeakDetector(final String name) {
+        this(name, DEFAULT_LEVEL, DEFAULT_SAMPLING_INTERVAL, null);
+    }
+
+    /**
+     * @param name the name of the detector, e.g. the type of resource, for reporting.
+     * @param level the level of leak detection.
+     * @param samplingInterval track 1 in this many resources, unless the level is {@link DetectionLevel#PARANOID}.
+     * @param reporter a function which reports leaks, or null to log leaks as warnings.
+     */
+    public ResourceLeakDetector(final String name, final DetectionLevel level, final int samplingInterval,
+            final Consumer<ResourceLeak> reporter) {
+        if (samplingInterval < 1) {
+            throw new IllegalArgumentException("samplingInterval must be at least 1");
+        }
+        this.name = name;
+        this.level = level;
+        this.samplingInterval = samplingInterval;
+        this.reporter = reporter != null ? reporter : leak -> LOG.log(Level.WARNING, leak.toString(), leak.getAcquisitionTrace());
+    }
+
+    /**
+     * Tracks a resource which has been acquired, if it is sampled.
+     *
+     * @param resource the resource.
+     *
+     * @return true if the resource is being tracked.
+     */
+    public boolean track(final T resource) {
+        if (level == DetectionLevel.DISABLED) {
+            return false;
+        }
+        if (level != DetectionLevel.PARANOID && samplingInterval > 1
+                && ThreadLocalRandom.current().nextInt(samplingInterval) != 0) {
+            return false;
+        }
+
+        reportLeaks();
+
+        final Throwable trace = level == DetectionLevel.SIMPLE ? null : new Throwable("Acquired by " + Thread.currentThread().getName());
+        final Tracker tracker = new Tracker(resource, collected, trace);
+        tracked.merge(tracker.hash, tracker, (existing, added) -> {
+            added.next = existing;
+            return added;
+        });
+        return true;
+    }
+
+    /**
+     * Untracks a resource which is being released.
+     *
+     * @param resource the resource.
+     *
+     * @return true if the resource was being tracked.
+     */
+    public boolean untrack(final T resource) {
+        if (level == DetectionLevel.DISABLED || resource == null) {
+            return false;
+        }
+
+        final boolean[] untracked = new boolean[1];
+        tracked.computeIfPresent(System.identityHashCode(resource), (hash, head) -> {
+            Tracker previous = null;
+            for (Tracker tracker = head; tracker != null; tracker = tracker.next) {
+                if (tracker.identity.get() == resource) {
+                    // prevent the tracker being enqueued, as the resource was released
+                    tracker.clear();
+                    untracked[0] = true;
+                    if (previous == null) {
+                        return tracker.next;
+                    }
+                    previous.next = tracker.next;
+                    return head;
+                }
+                previous = tracker;
+            }
+            return head;
+        });
+        return untracked[0];
+    }
+
+    /**
+     * Reports any tracked resources which have been garbage collected.
+     */
+    public void reportLeaks() {
+        Tracker tracker;
+        while ((tracker = (Tracker) collected.poll()) != null) {
+            final Tracker leaked = tracker;
+            tracked.computeIfPresent(leaked.hash, (hash, head) -> {
+                Tracker previous = null;
+                for (Tracker t = head; t != null; t = t.next) {
+                    if (t == leaked) {
+                        if (previous == null) {
+                            return t.next;
+                        }
+                        previous.next = t.next;
+                        return head;
+                    }
+                    previous = t;
+                }
+                return head;
+            });
+
+            leaks.increment();
+            reporter.accept(new ResourceLeak(name, leaked.resourceType, leaked.trace));
+        }
+    }
+
+    /**
+     * Get the number of leaks which have been reported.
+     *
+     * @return the number of leaks.
+     */
+    public long getLeakCount() {
+        return leaks.sum();
+    }
+
+    /**
+     * Get the level of leak detection.
+     *
+     * @return the level.
+     */
+    public DetectionLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Tracks a resource.
+     *
+     * The phantom reference detects collection of the resource, whilst the
+     * weak reference identifies the resource when it is released; it is
+     * cleared before the resource is collected, and so does not prevent
+     * the phantom reference from being enqueued.
+     */
+    private static final class Tracker extends PhantomReference<Object> {
+        final int hash;
+        final WeakReference<Object> identity;
+        final String resourceType;
+        final Throwable trace;
+        @GuardedBy("ResourceLeakDetector.tracked") Tracker next = null;
+
+        Tracker(final Object resource, final ReferenceQueue<Object> queue, final Throwable trace) {
+            super(resource, queue);
+            this.hash = System.identityHashCode(resource);
+            this.identity = new WeakReference<>(resource);
+            this.resourceType = resource.getClass().getName();
+            this.trace = trace;
+        }
+    }
+}
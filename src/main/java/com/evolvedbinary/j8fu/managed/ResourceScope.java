@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.j8fu.function.BiConsumerE;
+import com.evolvedbinary.j8fu.function.FunctionE;
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A scope in which any number of resources are acquired (which is not thread safe),
+ * and which releases them all, in the reverse order of their acquisition, when it is closed.
+ *
+ * An alternative to nesting {@link ManagedResource#map(java.util.function.Function)}, e.g.
+ * <pre>{@code
+ *     final Either<List<Exception>, Result> result = scoped(scope -> {
+ *         final Connection connection = scope.acquire(dataSource, DataSource::getConnection, (ds, c) -> c.close());
+ *         final Parser parser = scope.acquire(pool, ManagedPool::borrow, ManagedPool::release);
+ *         final InputStream is = scope.register(Files.newInputStream(path));
+ *         return process(connection, parser, is);
+ *     });
+ * }</pre>
+ *
+ * The subjects, resources, and release functions are kept in three parallel
+ * arrays which are used as a stack, so registering a resource allocates
+ * nothing unless the stack must grow. A release function which
+ * fails does not prevent the remaining resources from being released.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@NotThreadSafe
+// close() rethrows whatever a release function threw, which may be an InterruptedException
+@SuppressWarnings("try")
+public class ResourceScope implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final BiConsumerE<Object, AutoCloseable, Exception> CLOSE = (subject, resource) -> resource.close();
+
+    private Object[] subjects;
+    private Object[] resources;
+    private Object[] releaseFns;
+    private int size = 0;
+
+    public ResourceScope() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity the number of resources which may be registered before the stack must grow.
+     */
+    public ResourceScope(final int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity must be at least 1");
+        }
+        this.subjects = new Object[initialCapacity];
+        this.resources = new Object[initialCapacity];
+        this.releaseFns = new Object[initialCapacity];
+    }
+
+    /**
+     * Acquires a resource from a subject, and registers it
+     * to be released when the scope is closed.
+     *
+     * If the resource cannot be acquired then nothing is registered.
+     *
+     * @param <T> the type of the subject.
+     * @param <AR> the type of the resource.
+     * @param <AE> the type of the exception thrown by the acquire function.
+     * @param <RE> the type of the exception thrown by the release function.
+     * @param subject the subject from which the resource is acquired.
+     * @param acquireFn a function which acquires the resource from the subject.
+     * @param releaseFn a function which releases the resource.
+     *
+     * @return the resource.
+     *
+     * @throws AE if the resource cannot be acquired.
+     */
+    public <T, AR, AE extends Exception, RE extends Exception> AR acquire(final T subject,
+            final FunctionE<T, AR, AE> acquireFn, final BiConsumerE<T, AR, RE> releaseFn) throws AE {
+        final AR resource = acquireFn.apply(subject);
+        push(subject, resource, releaseFn);
+        return resource;
+    }
+
+    /**
+     * Registers a resource which has already been acquired
+     * from a subject, to be released when the scope is closed.
+     *
+     * @param <T> the type of the subject.
+     * @param <R> the type of the resource.
+     * @param <RE> the type of the exception thrown by the release function.
+     * @param subject the subject from which the resource was acquired.
+     * @param resource the resource.
+     * @param releaseFn a function which releases the resource.
+     *
+     * @return the resource.
+     */
+    public <T, R, RE extends Exception> R register(final T subject, final R resource, final BiConsumerE<T, R, RE> releaseFn) {
+        push(subject, resource, releaseFn);
+        return resource;
+    }
+
+    /**
+     * Registers a resource to be closed when the scope is closed.
+     *
+     * @param <R> the type of the resource.
+     * @param resource the resource.
+     *
+     * @return the resource.
+     */
+    public <R extends AutoCloseable> R register(final R resource) {
+        push(null, resource, CLOSE);
+        return resource;
+    }
+
+    private void push(final Object subject, final Object resource, final Object releaseFn) {
+        if (size == resources.length) {
+            final int capacity = size << 1;
+            subjects = Arrays.copyOf(subjects, capacity);
+            resources = Arrays.copyOf(resources, capacity);
+            releaseFns = Arrays.copyOf(releaseFns, capacity);
+        }
+        subjects[size] = subject;
+        resources[size] = resource;
+        releaseFns[size] = releaseFn;
+        size++;
+    }
+
+    /**
+     * Get the number of resources which are registered.
+     *
+     * @return the number of registered resources.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Releases all registered resources, in the reverse order of their registration.
+     *
+     * The scope may be used again after it has been released.
+     *
+     * @return the exceptions thrown by release functions, in the order that
+     *     they were thrown, or an empty list if all resources were released.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Exception> release() {
+        List<Exception> exceptions = Collections.emptyList();
+        while (size > 0) {
+            size--;
+            final BiConsumerE<Object, Object, Exception> releaseFn = (BiConsumerE<Object, Object, Exception>) releaseFns[size];
+            final Object subject = subjects[size];
+            final Object resource = resources[size];
+            subjects[size] = null;
+            resources[size] = null;
+            releaseFns[size] = null;
+
+            try {
+                releaseFn.accept(subject, resource);
+            } catch (final Exception e) {
+                if (exceptions.isEmpty()) {
+                    exceptions = new ArrayList<>();
+                }
+                exceptions.add(e);
+            }
+        }
+        return exceptions;
+    }
+
+    /**
+     * Releases all registered resources, in the reverse order of their registration.
+     *
+     * As release functions may throw any exception, this may throw an
+     * {@link InterruptedException}; the thread's interrupt status is then as
+     * the release function left it.
+     *
+     * @throws Exception the first exception thrown by a release function,
+     *     with any subsequent exceptions added as suppressed exceptions.
+     */
+    @Override
+    public void close() throws Exception {
+        final List<Exception> exceptions = release();
+        if (!exceptions.isEmpty()) {
+            final Exception first = exceptions.get(0);
+            for (int i = 1; i < exceptions.size(); i++) {
+                final Exception e = exceptions.get(i);
+                // a release function may throw the same instance as another
+                if (e != first) {
+                    first.addSuppressed(e);
+                }
+            }
+            throw first;
+        }
+    }
+
+    /**
+     * Applies a function within a new scope, and then releases
+     * all of the resources that were registered with the scope.
+     *
+     * @param <U> the type of the result of the function.
+     * @param <UE> the type of the exception thrown by the function.
+     * @param body the function, which acquires and uses resources within the scope.
+     *
+     * @return either the result of the function, or the exception thrown by the function
+     *     followed by any exceptions thrown when releasing the resources.
+     */
+    public static <U, UE extends Exception> Either<List<Exception>, U> scoped(final FunctionE<ResourceScope, U, UE> body) {
+        final ResourceScope scope = new ResourceScope();
+        Exception bodyException = null;
+        U result = null;
+        List<Exception> releaseExceptions = null;
+        try {
+            result = body.apply(scope);
+        } catch (final Exception e) {
+            bodyException = e;
+        } finally {
+            releaseExceptions = scope.release();
+        }
+
+        if (bodyException == null && releaseExceptions.isEmpty()) {
+            return Either.Right(result);
+        }
+
+        final List<Exception> exceptions = new ArrayList<>(releaseExceptions.size() + 1);
+        if (bodyException != null) {
+            exceptions.add(bodyException);
+        }
+        exceptions.addAll(releaseExceptions);
+        return Either.Left(exceptions);
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timer wheel (which is thread safe).
+ *
+ * Timeouts may be scheduled by any thread, they are placed on a lock-free
+ * queue and moved into the wheel, a ring of buckets each covering one tick,
+ * by the thread which next advances the wheel. Advancing visits only the buckets
+ * of the ticks which have elapsed, so the cost of expiry does not depend on the
+ * number of timeouts which are not yet due, and scheduling or cancelling a timeout
+ * never takes a lock. A timeout which is due more than one rotation ahead stays
+ * in its bucket until the rotation in which it is due, and a cancelled timeout
+ * is unlinked when its bucket is next visited.
+ *
+ * Timeouts expire at the first tick on or after their deadline, and so may
+ * run up to one tick late, but never early.
+ *
+ * Unless constructed without a worker, the wheel is advanced
+ * once per tick by a daemon thread until it is closed.
+ *
+ * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
+ */
+@ThreadSafe
+final class TimerWheel implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(TimerWheel.class.getName());
+
+    private final long tickNanos;
+    private final int mask;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    @GuardedBy("this") private final Timeout[] buckets;
+    @GuardedBy("this") private long processedTick = 0;
+    private final Thread worker;
+    private volatile boolean closed = false;
+
+    /**
+     * @param name the name of the worker thread.
+     * @param tickNanos the duration of a tick in nanoseconds.
+     * @param wheelSize the number of buckets, rounded up to the nearest power of two.
+     * @param nanoClock the clock.
+     * @param startWorker true to start a thread which advances the wheel once per tick.
+     */
+    TimerWheel(final String name, final long tickNanos, final int wheelSize, final LongSupplier nanoClock,
+            final boolean startWorker) {
+        if (tickNanos < 1) {
+            throw new IllegalArgumentException("tickNanos must be positive");
+        }
+        if (wheelSize < 1 || wheelSize > 1 << 20) {
+            throw new IllegalArgumentException("wheelSize must be between 1 and 1048576");
+        }
+        final int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.tickNanos = tickNanos;
+        this.mask = size - 1;
+        this.buckets = new Timeout[size];
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+
+        if (startWorker) {
+            this.worker = new Thread(this::run, name);
+            this.worker.setDaemon(true);
+            this.worker.start();
+        } else {
+            this.worker = null;
+        }
+    }
+
+    /**
+     * Schedules a task to run when a delay has elapsed.
+     *
+     * @param delayNanos the delay in nanoseconds.
+     * @param task the task, which is run by the thread that advances the wheel.
+     *
+     * @return the timeout, which may be used to cancel the task.
+     *
+     * @throws IllegalStateException if the wheel has been closed.
+     */
+    Timeout schedule(final long delayNanos, final Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("TimerWheel is closed");
+        }
+
+        final long elapsed = nanoClock.getAsLong() - startNanos;
+        final long deadlineTick;
+        if (delayNanos >= Long.MAX_VALUE - elapsed - tickNanos) {
+            deadlineTick = Long.MAX_VALUE;
+        } else {
+            deadlineTick = (elapsed + Math.max(0, delayNanos) + tickNanos - 1) / tickNanos;
+        }
+
+        final Timeout timeout = new Timeout(deadlineTick, task);
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel to the current time, running
+     * the tasks of any timeouts which are due.
+     *
+     * @return the number of tasks which were run.
+     */
+    int advance() {
+        final List<Timeout> expired = collectExpired();
+        for (final Timeout timeout : expired) {
+            try {
+                timeout.task.run();
+            } catch (final Throwable e) {
+                // the worker thread must survive, or no later timeout would ever be run
+                LOG.log(Level.WARNING, "Timeout task failed: " + e.getMessage(), e);
+            }
+        }
+        return expired.size();
+    }
+
+    private synchronized List<Timeout> collectExpired() {
+        final long currentTick = (nanoClock.getAsLong() - startNanos) / tickNanos;
+        if (currentTick <= processedTick) {
+            return new ArrayList<>(0);
+        }
+
+        // after a long pause there is no need to visit any bucket more than once
+        final long fromTick = Math.max(processedTick + 1, currentTick - mask);
+
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state == Timeout.PENDING) {
+                final int index = (int) (Math.max(timeout.deadlineTick, fromTick) & mask);
+                timeout.next = buckets[index];
+                buckets[index] = timeout;
+            }
+        }
+
+        final List<Timeout> expired = new ArrayList<>();
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            final int index = (int) (tick & mask);
+            Timeout previous = null;
+            timeout = buckets[index];
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                final boolean due = timeout.deadlineTick <= tick;
+                if (timeout.state != Timeout.PENDING || due) {
+                    if (previous == null) {
+                        buckets[index] = next;
+                    } else {
+                        previous.next = next;
+                    }
+                    timeout.next = null;
+                    if (due && Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+                        expired.add(timeout);
+                    }
+                } else {
+                    previous = timeout;
+                }
+                timeout = next;
+            }
+        }
+
+        processedTick = currentTick;
+        return expired;
+    }
+
+    private void run() {
+        while (!closed) {
+            LockSupport.parkNanos(this, tickNanos);
+            if (!closed) {
+                advance();
+            }
+        }
+    }
+
+    /**
+     * Closes the wheel, stopping its worker thread.
+     *
+     * The tasks of any timeouts which are pending are not run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * A scheduled task, which either expires, or is cancelled, exactly once.
+     */
+    @ThreadSafe
+    static final class Timeout {
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final long deadlineTick;
+        private final Runnable task;
+        private volatile int state = PENDING;
+        @GuardedBy("TimerWheel.this") private Timeout next = null;
+
+        private Timeout(final long deadlineTick, final Runnable task) {
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        /**
+         * Cancels the timeout, unless it has already expired.
+         *
+         * @return true if the timeout was cancelled, false if it
+         *     had already expired or been cancelled.
+         */
+        boolean cancel() {
+            return STATE.compareAndSet(this, PENDING, CANCELLED);
+        }
+
+        /**
+         * Returns true if the timeout has expired.
+         *
+         * @return true if the timeout has expired.
+         */
+        boolean isExpired() {
+            return state == EXPIRED;
+        }
+    }
+}
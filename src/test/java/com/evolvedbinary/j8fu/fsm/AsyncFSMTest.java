@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.evolvedbinary.j8fu.fsm.StandardFSMTest.TurnstileEvent.*;
+import static com.evolvedbinary.j8fu.fsm.StandardFSMTest.TurnstileState.*;
+import static com.evolvedbinary.j8fu.fsm.TransitionTable.transitionTable;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncFSMTest {
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setupExecutor() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterClass
+    public static void shutdownExecutor() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TransitionTable<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> turnstile() {
+        return transitionTable(StandardFSMTest.TurnstileState.class, StandardFSMTest.TurnstileEvent.class)
+                .when(LOCKED).on(COIN).switchTo(UNLOCKED)
+                .when(UNLOCKED).on(PUSH).switchTo(LOCKED)
+                .when(UNLOCKED).ignore(COIN)
+                .build();
+    }
+
+    @Test
+    public void processEvents() {
+        final AsyncFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new AsyncFSM<>(LOCKED, turnstile(), executor);
+
+        assertEquals(LOCKED, fsm.getCurrentState());
+        assertEquals(UNLOCKED, fsm.process(COIN));
+        assertEquals(UNLOCKED, fsm.getCurrentState());
+        assertEquals(LOCKED, fsm.process(PUSH));
+        assertEquals(LOCKED, fsm.getCurrentState());
+    }
+
+    @Test
+    public void processAsyncEvents_inOrder() {
+        final AsyncFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new AsyncFSM<>(LOCKED, turnstile(), executor);
+
+        final CompletableFuture<StandardFSMTest.TurnstileState> first = fsm.processAsync(COIN);
+        final CompletableFuture<StandardFSMTest.TurnstileState> second = fsm.processAsync(COIN);
+        final CompletableFuture<StandardFSMTest.TurnstileState> third = fsm.processAsync(PUSH);
+
+        assertEquals(LOCKED, third.join());
+        assertEquals(UNLOCKED, first.join());
+        assertEquals(UNLOCKED, second.join());
+        assertEquals(LOCKED, fsm.getCurrentState());
+    }
+
+    @Test
+    public void processAsyncEvents_rejected() throws InterruptedException {
+        final AsyncFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new AsyncFSM<>(LOCKED, turnstile(), executor);
+
+        try {
+            fsm.processAsync(PUSH).get();
+            fail("Expected ExecutionException");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        // the FSM must still process events after a rejection
+        assertEquals(UNLOCKED, fsm.processAsync(COIN).join());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void processEvents_rejected() {
+        final AsyncFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new AsyncFSM<>(LOCKED, turnstile(), executor);
+        fsm.process(PUSH);
+    }
+
+    @Test
+    public void executorRejection_completesQueuedEvents() {
+        final ManualExecutor manualExecutor = new ManualExecutor();
+        final AsyncFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new AsyncFSM<>(LOCKED, turnstile(), manualExecutor);
+
+        // more than one batch, so that draining must re-schedule itself
+        final int eventCount = SerialExecutor.MAX_BATCH_SIZE + 6;
+        final List<CompletableFuture<StandardFSMTest.TurnstileState>> results = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            results.add(fsm.processAsync(i % 2 == 0 ? COIN : PUSH));
+        }
+        assertEquals(1, manualExecutor.pending.size());
+
+        manualExecutor.rejecting = true;
+        manualExecutor.pending.remove(0).run();
+
+        for (int i = 0; i < SerialExecutor.MAX_BATCH_SIZE; i++) {
+            assertFalse(results.get(i).isCompletedExceptionally());
+        }
+        for (int i = SerialExecutor.MAX_BATCH_SIZE; i < eventCount; i++) {
+            try {
+                results.get(i).join();
+                fail("Expected CompletionException");
+            } catch (final CompletionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        }
+
+        try {
+            fsm.processAsync(COIN);
+            fail("Expected RejectedExecutionException");
+        } catch (final RejectedExecutionException e) {
+            // expected
+        }
+
+        // the FSM must still process events once the executor accepts them again
+        manualExecutor.rejecting = false;
+        final CompletableFuture<StandardFSMTest.TurnstileState> result = fsm.processAsync(COIN);
+        manualExecutor.pending.remove(0).run();
+        assertEquals(UNLOCKED, result.join());
+    }
+
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> pending = new ArrayList<>();
+        boolean rejecting = false;
+
+        @Override
+        public void execute(final Runnable command) {
+            if (rejecting) {
+                throw new RejectedExecutionException("rejecting");
+            }
+            pending.add(command);
+        }
+    }
+
+    @Test
+    public void manyFsmsSharedExecutor() {
+        final int fsmCount = 1000;
+        final int eventsPerFsm = 101;
+
+        final List<AsyncFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent>> fsms = new ArrayList<>(fsmCount);
+        final List<CompletableFuture<StandardFSMTest.TurnstileState>> lastResults = new ArrayList<>(fsmCount);
+        for (int i = 0; i < fsmCount; i++) {
+            fsms.add(new AsyncFSM<>(LOCKED, turnstile(), executor));
+        }
+
+        for (final AsyncFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm : fsms) {
+            CompletableFuture<StandardFSMTest.TurnstileState> result = null;
+            for (int i = 0; i < eventsPerFsm; i++) {
+                // alternating COIN and PUSH is only valid if the events are processed in order
+                result = fsm.processAsync(i % 2 == 0 ? COIN : PUSH);
+            }
+            lastResults.add(result);
+        }
+
+        for (final CompletableFuture<StandardFSMTest.TurnstileState> result : lastResults) {
+            assertEquals(UNLOCKED, result.join());
+        }
+    }
+}
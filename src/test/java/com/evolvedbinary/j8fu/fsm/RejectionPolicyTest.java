@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.fsm;
+
+import com.evolvedbinary.j8fu.tuple.Tuple3;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.evolvedbinary.j8fu.fsm.StandardFSMTest.TurnstileEvent.*;
+import static com.evolvedbinary.j8fu.fsm.StandardFSMTest.TurnstileState.*;
+import static com.evolvedbinary.j8fu.fsm.TransitionTable.transitionTable;
+import static com.evolvedbinary.j8fu.tuple.Tuple.Tuple;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+public class RejectionPolicyTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void throwing() {
+        final StandardFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new StandardFSM<>(
+                LOCKED,
+                transitionTable(StandardFSMTest.TurnstileState.class, StandardFSMTest.TurnstileEvent.class)
+                        .when(LOCKED).on(COIN).switchTo(UNLOCKED)
+                        .build(RejectionPolicy.throwing())
+        );
+
+        try {
+            fsm.process(PUSH);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("No known transition from current state 'LOCKED' for event 'PUSH'", e.getMessage());
+        }
+
+        assertEquals(UNLOCKED, fsm.process(COIN));
+
+        try {
+            fsm.process(PUSH);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("No known transitions from current state 'UNLOCKED'", e.getMessage());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void ignoring() {
+        final StandardFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new StandardFSM<>(
+                LOCKED,
+                transitionTable(StandardFSMTest.TurnstileState.class, StandardFSMTest.TurnstileEvent.class)
+                        .when(LOCKED).on(COIN).switchTo(UNLOCKED)
+                        .build(RejectionPolicy.ignoring())
+        );
+
+        assertEquals(LOCKED, fsm.process(PUSH));
+        assertEquals(UNLOCKED, fsm.process(COIN));
+
+        // no transitions at all from UNLOCKED
+        assertEquals(UNLOCKED, fsm.process(PUSH));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void stackless() {
+        final StandardFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new StandardFSM<>(
+                LOCKED,
+                transitionTable(StandardFSMTest.TurnstileState.class, StandardFSMTest.TurnstileEvent.class)
+                        .when(LOCKED).on(COIN).switchTo(UNLOCKED)
+                        .when(UNLOCKED).on(PUSH).switchTo(LOCKED)
+                        .build(RejectionPolicy.stackless())
+        );
+
+        RejectedEventException first = null;
+        try {
+            fsm.process(PUSH);
+            fail("Expected RejectedEventException");
+        } catch (final RejectedEventException e) {
+            assertEquals(RejectionCode.NO_TRANSITION_FOR_EVENT, e.getCode());
+            assertEquals(0, e.getStackTrace().length);
+            first = e;
+            first.addSuppressed(new IllegalArgumentException());
+        }
+
+        try {
+            fsm.process(PUSH);
+            fail("Expected RejectedEventException");
+        } catch (final RejectedEventException e) {
+            // not shared, so suppressed exceptions do not leak between rejections
+            assertNotSame(first, e);
+            assertEquals(first.getMessage(), e.getMessage());
+            assertEquals(0, e.getSuppressed().length);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deadLetter() {
+        final List<Tuple3<RejectionCode, StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent>> deadLetters = new ArrayList<>();
+        final DeadLetterPolicy<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> deadLetterPolicy =
+                new DeadLetterPolicy<>((code, state, event) -> deadLetters.add(Tuple(code, state, event)));
+
+        final StandardFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new StandardFSM<>(
+                LOCKED,
+                transitionTable(StandardFSMTest.TurnstileState.class, StandardFSMTest.TurnstileEvent.class)
+                        .when(LOCKED).on(COIN).switchTo(UNLOCKED)
+                        .build(deadLetterPolicy)
+        );
+
+        assertEquals(LOCKED, fsm.process(PUSH));
+        assertEquals(LOCKED, fsm.process(PUSH));
+        assertEquals(UNLOCKED, fsm.process(COIN));
+        assertEquals(UNLOCKED, fsm.process(COIN));
+
+        assertEquals(3, deadLetters.size());
+        assertEquals(Tuple(RejectionCode.NO_TRANSITION_FOR_EVENT, LOCKED, PUSH), deadLetters.get(0));
+        assertEquals(Tuple(RejectionCode.NO_TRANSITIONS_FROM_STATE, UNLOCKED, COIN), deadLetters.get(2));
+
+        assertEquals(2, deadLetterPolicy.getRejectedCount(RejectionCode.NO_TRANSITION_FOR_EVENT));
+        assertEquals(1, deadLetterPolicy.getRejectedCount(RejectionCode.NO_TRANSITIONS_FROM_STATE));
+        assertEquals(3, deadLetterPolicy.getRejectedCount());
+
+        deadLetterPolicy.resetCounts();
+        assertEquals(0, deadLetterPolicy.getRejectedCount());
+    }
+
+    @Test(expected = RejectedEventException.class)
+    @SuppressWarnings("unchecked")
+    public void deadLetter_delegate() {
+        final DeadLetterPolicy<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> deadLetterPolicy =
+                new DeadLetterPolicy<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent>(null, RejectionPolicy.stackless());
+
+        final AtomicFSM<StandardFSMTest.TurnstileState, StandardFSMTest.TurnstileEvent> fsm = new AtomicFSM<>(
+                LOCKED,
+                transitionTable(StandardFSMTest.TurnstileState.class, StandardFSMTest.TurnstileEvent.class)
+                        .when(LOCKED).on(COIN).switchTo(UNLOCKED)
+                        .build(deadLetterPolicy)
+        );
+
+        try {
+            fsm.process(PUSH);
+        } finally {
+            assertEquals(1, deadLetterPolicy.getRejectedCount());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncLazyValTest {
+
+    @Test
+    public void startsOnFirstTouch() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final Executor executor = tasks::add;
+
+        final AsyncLazyVal<String> lazyVal = new AsyncLazyVal<>(() -> "hello", executor);
+        assertFalse(lazyVal.isStarted());
+        assertTrue(tasks.isEmpty());
+
+        assertEquals("pending", lazyVal.getNow("pending"));
+        assertTrue(lazyVal.isStarted());
+        assertFalse(lazyVal.isInitialized());
+        assertEquals(1, tasks.size());
+
+        // further touches do not start another initialization
+        assertEquals("pending", lazyVal.getNow("pending"));
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertTrue(lazyVal.isInitialized());
+        assertEquals("hello", lazyVal.getNow("pending"));
+        assertEquals("hello", lazyVal.get());
+    }
+
+    @Test
+    public void eager() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final Executor executor = tasks::add;
+
+        final AsyncLazyVal<String> lazyVal = new AsyncLazyVal<>(true, () -> "hello", executor);
+        assertTrue(lazyVal.isStarted());
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void callersShareInitialization() throws InterruptedException {
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AsyncLazyVal<Object> lazyVal = new AsyncLazyVal<>(() -> {
+            invocations.incrementAndGet();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Object();
+        }, runnable -> new Thread(runnable).start());
+
+        final CompletableFuture<Object> first = lazyVal.getAsync();
+        final CompletableFuture<Object> second = lazyVal.getAsync();
+        assertFalse(first.isDone());
+
+        // cancelling one caller's future does not affect the others
+        first.cancel(false);
+
+        release.countDown();
+        final Object value = lazyVal.get();
+        assertSame(value, second.join());
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    public void initializerFails() {
+        final AsyncLazyVal<String> lazyVal = new AsyncLazyVal<>(() -> {
+            throw new IllegalStateException("failed");
+        }, Runnable::run);
+
+        try {
+            lazyVal.get();
+            fail("Expected CompletionException");
+        } catch (final CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(lazyVal.isStarted());
+        assertFalse(lazyVal.isInitialized());
+    }
+}
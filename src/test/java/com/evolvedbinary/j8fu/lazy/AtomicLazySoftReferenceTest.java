@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AtomicLazySoftReferenceTest {
+
+    @Test
+    public void initializeOnce() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicLazySoftReference<String> lazyRef = new AtomicLazySoftReference<>(() -> {
+            invocations.incrementAndGet();
+            return "hello";
+        });
+
+        assertFalse(lazyRef.isInitialized());
+        assertEquals("hello", lazyRef.get());
+        assertTrue(lazyRef.isInitialized());
+        assertEquals("hello", lazyRef.get());
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    public void recomputeWhenCleared() {
+        final MemoryPressureReclamationStrategy strategy = new MemoryPressureReclamationStrategy(1);
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicLazySoftReference<String> lazyRef = new AtomicLazySoftReference<>(() -> "hello" + invocations.incrementAndGet(), strategy);
+
+        assertEquals("hello1", lazyRef.get());
+        strategy.reclaim();
+        assertTrue(lazyRef.isCleared());
+        assertEquals("hello2", lazyRef.get());
+        assertFalse(lazyRef.isCleared());
+        assertEquals(1, strategy.getRecomputeCount());
+    }
+
+    @Test
+    public void softStrategyIsUntrackedUnlessRequested() {
+        final ReclamationStrategy soft = ReclamationStrategy.soft();
+        assertSame(soft, ReclamationStrategy.soft());
+        assertEquals("hello", soft.hold("hello").get());
+        soft.recomputed();
+        assertEquals(0, soft.getRecomputeCount());
+        assertEquals(0, soft.getClearCount());
+
+        final ReclamationStrategy tracked = ReclamationStrategy.trackedSoft();
+        assertNotSame(tracked, ReclamationStrategy.trackedSoft());
+        assertEquals("hello", tracked.hold("hello").get());
+        tracked.recomputed();
+        assertEquals(1, tracked.getRecomputeCount());
+    }
+
+    @Test
+    public void concurrentRecomputeIsSingleFlight() throws Exception {
+        final int threads = 8;
+        final MemoryPressureReclamationStrategy strategy = new MemoryPressureReclamationStrategy(1);
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicLazySoftReference<String> lazyRef = new AtomicLazySoftReference<>(() -> {
+            if (invocations.incrementAndGet() > 1) {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "hello";
+        }, strategy);
+
+        assertEquals("hello", lazyRef.get());
+        strategy.reclaim();
+        assertTrue(lazyRef.isCleared());
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch ready = new CountDownLatch(threads);
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executorService.submit(() -> {
+                    ready.countDown();
+                    return lazyRef.get();
+                }));
+            }
+            ready.await();
+            release.countDown();
+
+            for (final Future<String> result : results) {
+                assertEquals("hello", result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertEquals(2, invocations.get());
+        assertEquals(1, strategy.getRecomputeCount());
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.evolvedbinary.j8fu.Either.Left;
+import static com.evolvedbinary.j8fu.Either.Right;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AtomicLazyValETest {
+
+    @Test
+    public void failureIsCachedForeverByDefault() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicLazyValE<String, IOException> lazyVal = new AtomicLazyValE<>(() -> {
+            invocations.incrementAndGet();
+            return Left(new IOException("failed"));
+        });
+
+        assertFails(lazyVal);
+        assertFails(lazyVal);
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    public void retryWithBackoff() throws IOException {
+        final AtomicLong clock = new AtomicLong();
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicLazyValE<String, IOException> lazyVal = new AtomicLazyValE<>(() -> {
+            if (invocations.incrementAndGet() < 4) {
+                return Left(new IOException("failed"));
+            }
+            return Right("hello");
+        }, RetryPolicy.retryAfter(10, TimeUnit.NANOSECONDS).withBackoff(3, 50, TimeUnit.NANOSECONDS), clock::get);
+
+        assertFails(lazyVal);
+        clock.set(10);
+        assertFails(lazyVal);
+        assertEquals(2, invocations.get());
+
+        // second failure is cached for 30
+        clock.set(39);
+        assertFails(lazyVal);
+        assertEquals(2, invocations.get());
+        clock.set(40);
+        assertFails(lazyVal);
+        assertEquals(3, invocations.get());
+
+        // third failure is cached for 90, capped at 50
+        clock.set(89);
+        assertFails(lazyVal);
+        assertEquals(3, invocations.get());
+        clock.set(90);
+        assertEquals("hello", lazyVal.get());
+        assertEquals(4, invocations.get());
+    }
+
+    @Test
+    public void retryIsSingleFlight() throws Exception {
+        final int threads = 8;
+        final AtomicLong clock = new AtomicLong();
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountDownLatch retrying = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicLazyValE<String, IOException> lazyVal = new AtomicLazyValE<>(() -> {
+            if (invocations.incrementAndGet() == 1) {
+                return Left(new IOException("failed"));
+            }
+            retrying.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Right("hello");
+        }, RetryPolicy.retryAfter(10, TimeUnit.NANOSECONDS), clock::get);
+
+        assertFails(lazyVal);
+        clock.set(10);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final Future<String> retrier = executorService.submit(lazyVal::get);
+            assertTrue(retrying.await(10, TimeUnit.SECONDS));
+
+            // whilst the retry is in flight, other callers fail fast with the cached failure
+            for (int i = 0; i < threads; i++) {
+                final Future<?> other = executorService.submit(() -> assertFails(lazyVal));
+                other.get();
+            }
+
+            release.countDown();
+            assertEquals("hello", retrier.get());
+            assertEquals("hello", lazyVal.get());
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertEquals(2, invocations.get());
+    }
+
+    @Test
+    public void retryAfterInitializerThrows() throws IOException {
+        final AtomicLong clock = new AtomicLong();
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicLazyValE<String, IOException> lazyVal = new AtomicLazyValE<>(() -> {
+            final int invocation = invocations.incrementAndGet();
+            if (invocation == 1) {
+                return Left(new IOException("failed"));
+            } else if (invocation == 2) {
+                throw new IllegalStateException("unexpected");
+            }
+            return Right("hello");
+        }, RetryPolicy.retryAfter(10, TimeUnit.NANOSECONDS), clock::get);
+
+        assertFails(lazyVal);
+        clock.set(10);
+        try {
+            lazyVal.get();
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("unexpected", e.getMessage());
+        }
+
+        // the retry was not left in flight
+        assertEquals("hello", lazyVal.get());
+    }
+
+    private static void assertFails(final AtomicLazyValE<String, IOException> lazyVal) {
+        try {
+            lazyVal.get();
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+}
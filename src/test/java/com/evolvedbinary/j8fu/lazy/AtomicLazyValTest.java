@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AtomicLazyValTest {
+
+    @Test
+    public void initializeOnce() {
+        for (final InitializationPolicy policy : InitializationPolicy.values()) {
+            final AtomicInteger invocations = new AtomicInteger();
+            final AtomicLazyVal<String> lazyVal = new AtomicLazyVal<>(policy, () -> {
+                invocations.incrementAndGet();
+                return "hello";
+            });
+
+            assertFalse(lazyVal.isInitialized());
+            assertEquals("hello", lazyVal.get());
+            assertTrue(lazyVal.isInitialized());
+            assertEquals("hello", lazyVal.get());
+            assertEquals(policy.name(), 1, invocations.get());
+        }
+    }
+
+    @Test
+    public void nullIsCached() {
+        for (final InitializationPolicy policy : InitializationPolicy.values()) {
+            final AtomicInteger invocations = new AtomicInteger();
+            final AtomicLazyVal<String> lazyVal = new AtomicLazyVal<>(policy, () -> {
+                invocations.incrementAndGet();
+                return null;
+            });
+
+            assertNull(lazyVal.get());
+            assertTrue(lazyVal.isInitialized());
+            assertNull(lazyVal.get());
+            assertEquals(policy.name(), 1, invocations.get());
+        }
+    }
+
+    @Test
+    public void synchronizedInitializesExactlyOnce() throws Exception {
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountDownLatch initializerEntered = new CountDownLatch(1);
+        final CountDownLatch releaseInitializer = new CountDownLatch(1);
+        final AtomicLazyVal<Object> lazyVal = new AtomicLazyVal<>(InitializationPolicy.SYNCHRONIZED, () -> {
+            invocations.incrementAndGet();
+            initializerEntered.countDown();
+            try {
+                releaseInitializer.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Object();
+        });
+
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(lazyVal::get));
+            }
+
+            initializerEntered.await();
+            releaseInitializer.countDown();
+
+            final Object first = results.get(0).get();
+            for (final Future<Object> result : results) {
+                assertSame(first, result.get());
+            }
+            assertEquals(1, invocations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void synchronizedRetriesAfterFailure() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicLazyVal<String> lazyVal = new AtomicLazyVal<>(InitializationPolicy.SYNCHRONIZED, () -> {
+            if (invocations.incrementAndGet() == 1) {
+                throw new IllegalStateException("first attempt fails");
+            }
+            return "hello";
+        });
+
+        try {
+            lazyVal.get();
+            fail("expected exception");
+        } catch (final IllegalStateException e) {
+            assertFalse(lazyVal.isInitialized());
+        }
+
+        assertEquals("hello", lazyVal.get());
+        assertEquals(2, invocations.get());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AtomicResettableLazyValTest {
+
+    @Test
+    public void invalidate() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicResettableLazyVal<String> lazyVal = new AtomicResettableLazyVal<>(() -> "v" + invocations.incrementAndGet());
+
+        assertFalse(lazyVal.isInitialized());
+        assertEquals("v1", lazyVal.get());
+        assertEquals("v1", lazyVal.get());
+        assertTrue(lazyVal.isInitialized());
+
+        lazyVal.invalidate();
+        assertFalse(lazyVal.isInitialized());
+        assertEquals("v2", lazyVal.get());
+        assertEquals("v2", lazyVal.get());
+        assertEquals(2, invocations.get());
+    }
+
+    @Test
+    public void advanceEpochInvalidatesGroup() {
+        final LazyEpoch epoch = new LazyEpoch();
+        final AtomicInteger invocations = new AtomicInteger();
+        final List<AtomicResettableLazyVal<Integer>> group = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            group.add(new AtomicResettableLazyVal<>(epoch, invocations::incrementAndGet));
+        }
+        final AtomicResettableLazyVal<Integer> outsider = new AtomicResettableLazyVal<>(invocations::incrementAndGet);
+
+        group.forEach(AtomicResettableLazyVal::get);
+        final int outsiderVal = outsider.get();
+        assertEquals(101, invocations.get());
+
+        epoch.advance();
+        for (final AtomicResettableLazyVal<Integer> lazyVal : group) {
+            assertFalse(lazyVal.isInitialized());
+        }
+        assertTrue(outsider.isInitialized());
+
+        group.forEach(AtomicResettableLazyVal::get);
+        assertEquals(outsiderVal, (int) outsider.get());
+        assertEquals(201, invocations.get());
+    }
+
+    @Test
+    public void valueInitializedDuringInvalidationIsNotReturnedAfterIt() throws Exception {
+        final CountDownLatch initializing = new CountDownLatch(1);
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicResettableLazyVal<String> lazyVal = new AtomicResettableLazyVal<>(() -> {
+            final int invocation = invocations.incrementAndGet();
+            if (invocation == 1) {
+                initializing.countDown();
+                try {
+                    invalidated.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "v" + invocation;
+        });
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> stale = executorService.submit(lazyVal::get);
+            assertTrue(initializing.await(10, TimeUnit.SECONDS));
+            lazyVal.invalidate();
+            invalidated.countDown();
+
+            // the reader which began before the invalidation keeps its consistent value
+            assertEquals("v1", stale.get());
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertFalse(lazyVal.isInitialized());
+        assertEquals("v2", lazyVal.get());
+    }
+}
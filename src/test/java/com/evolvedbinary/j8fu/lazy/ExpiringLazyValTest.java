@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.evolvedbinary.j8fu.lazy.ExpiringLazyVal.expiringLazyVal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExpiringLazyValTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Queue<Runnable> backgroundTasks = new ArrayDeque<>();
+
+    private ExpiringLazyVal.Builder<Integer> builder() {
+        return expiringLazyVal(loads::incrementAndGet, 100, TimeUnit.NANOSECONDS)
+                .executor(backgroundTasks::add)
+                .nanoClock(clock::get);
+    }
+
+    @Test
+    public void freshValueIsCached() {
+        final ExpiringLazyVal<Integer> lazyVal = builder().build();
+        assertFalse(lazyVal.isInitialized());
+
+        assertEquals(1, (int) lazyVal.get());
+        clock.addAndGet(99);
+        assertEquals(1, (int) lazyVal.get());
+        assertEquals(1, loads.get());
+        assertTrue(backgroundTasks.isEmpty());
+    }
+
+    @Test
+    public void expiredValueIsReloaded() {
+        final ExpiringLazyVal<Integer> lazyVal = builder().build();
+
+        assertEquals(1, (int) lazyVal.get());
+        clock.addAndGet(100);
+        assertTrue(lazyVal.isStale());
+
+        // without a max-stale period, we must wait for the reload
+        assertEquals(2, (int) lazyVal.get());
+        assertFalse(lazyVal.isStale());
+    }
+
+    @Test
+    public void refreshAhead() {
+        final ExpiringLazyVal<Integer> lazyVal = builder()
+                .refreshAhead(20, TimeUnit.NANOSECONDS)
+                .build();
+
+        assertEquals(1, (int) lazyVal.get());
+        clock.addAndGet(80);
+
+        // starts a single background reload, and returns the current value
+        assertEquals(1, (int) lazyVal.get());
+        assertEquals(1, (int) lazyVal.get());
+        assertEquals(1, backgroundTasks.size());
+
+        backgroundTasks.poll().run();
+        assertEquals(2, (int) lazyVal.get());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void staleWhileRevalidate() {
+        final ExpiringLazyVal<Integer> lazyVal = builder()
+                .maxStale(50, TimeUnit.NANOSECONDS)
+                .build();
+
+        assertEquals(1, (int) lazyVal.get());
+        clock.addAndGet(120);
+
+        assertEquals(1, (int) lazyVal.get());
+        assertEquals(1, backgroundTasks.size());
+
+        // past the max-stale period we must wait for the in flight reload
+        clock.addAndGet(50);
+        final CompletableFuture<Integer> waiting = CompletableFuture.supplyAsync(lazyVal::get);
+        backgroundTasks.poll().run();
+        assertEquals(2, (int) waiting.join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void refreshIsSingleFlight() {
+        final ExpiringLazyVal<Integer> lazyVal = builder().build();
+        assertEquals(1, (int) lazyVal.get());
+
+        final CompletableFuture<Integer> first = lazyVal.refresh();
+        final CompletableFuture<Integer> second = lazyVal.refresh();
+        assertEquals(1, backgroundTasks.size());
+
+        backgroundTasks.poll().run();
+        assertEquals(2, (int) first.join());
+        assertSame(first.join(), second.join());
+    }
+
+    @Test
+    public void jitterBringsRefreshForward() {
+        final ExpiringLazyVal<Integer> lazyVal = builder()
+                .refreshAhead(10, TimeUnit.NANOSECONDS)
+                .jitter(0.5)
+                .build();
+
+        assertEquals(1, (int) lazyVal.get());
+
+        // the refresh must have started somewhere in [40, 90)
+        clock.addAndGet(39);
+        lazyVal.get();
+        assertTrue(backgroundTasks.isEmpty());
+
+        clock.addAndGet(51);
+        lazyVal.get();
+        assertEquals(1, backgroundTasks.size());
+    }
+
+    @Test
+    public void failedBackgroundReloadBacksOff() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final ExpiringLazyVal<Integer> lazyVal = expiringLazyVal(() -> {
+                    if (attempts.incrementAndGet() > 1) {
+                        throw new IllegalStateException("dependency unavailable");
+                    }
+                    return 1;
+                }, 100, TimeUnit.NANOSECONDS)
+                .executor(backgroundTasks::add)
+                .nanoClock(clock::get)
+                .maxStale(1_000, TimeUnit.NANOSECONDS)
+                .retryInterval(50, TimeUnit.NANOSECONDS)
+                .build();
+
+        assertEquals(1, (int) lazyVal.get());
+        clock.addAndGet(100);
+
+        assertEquals(1, (int) lazyVal.get());
+        backgroundTasks.poll().run();
+        assertEquals(2, attempts.get());
+
+        // within the retry interval the stale value is returned without reloading
+        clock.addAndGet(49);
+        assertEquals(1, (int) lazyVal.get());
+        assertEquals(1, (int) lazyVal.get());
+        assertTrue(backgroundTasks.isEmpty());
+
+        clock.addAndGet(1);
+        assertEquals(1, (int) lazyVal.get());
+        assertEquals(1, backgroundTasks.size());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyAttachmentTest {
+
+    @Test
+    public void computedOncePerObject() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final LazyAttachment<StringBuilder, String> attachment = new LazyAttachment<>(sb -> {
+            invocations.incrementAndGet();
+            return sb.toString().toUpperCase();
+        });
+
+        final StringBuilder a = new StringBuilder("a");
+        assertFalse(attachment.isAttached(a));
+        assertEquals("A", attachment.get(a));
+        assertTrue(attachment.isAttached(a));
+        assertSame(attachment.get(a), attachment.get(a));
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    public void keyedByIdentity() {
+        final LazyAttachment<String, Object> attachment = new LazyAttachment<>(s -> new Object());
+        final String a = new String("a");
+        final String b = new String("a");
+        assertNotSame(attachment.get(a), attachment.get(b));
+        assertEquals(2, attachment.size());
+    }
+
+    @Test
+    public void remove() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final LazyAttachment<Object, Integer> attachment = new LazyAttachment<>(o -> invocations.incrementAndGet());
+        final Object key = new Object();
+        assertEquals(1, (int) attachment.get(key));
+        attachment.remove(key);
+        assertFalse(attachment.isAttached(key));
+        assertEquals(0, attachment.size());
+        assertEquals(2, (int) attachment.get(key));
+    }
+
+    @Test
+    public void manyKeys() {
+        final LazyAttachment<Object, Integer> attachment = new LazyAttachment<>(2, Object::hashCode);
+        final List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            final Object key = new Object();
+            keys.add(key);
+            attachment.get(key);
+        }
+        assertEquals(10_000, attachment.size());
+        for (final Object key : keys) {
+            assertTrue(attachment.isAttached(key));
+            assertEquals(key.hashCode(), (int) attachment.get(key));
+        }
+
+        // remove every other key, exercising unlinking from the middle of buckets
+        for (int i = 0; i < keys.size(); i += 2) {
+            attachment.remove(keys.get(i));
+        }
+        assertEquals(5_000, attachment.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i % 2 == 1, attachment.isAttached(keys.get(i)));
+        }
+    }
+
+    @Test
+    public void collectedKeysAreExpunged() throws InterruptedException {
+        final LazyAttachment<Object, byte[]> attachment = new LazyAttachment<>(o -> new byte[16]);
+        final Object retained = new Object();
+        attachment.get(retained);
+        for (int i = 0; i < 1_000; i++) {
+            attachment.get(new Object());
+        }
+
+        for (int i = 0; i < 50 && attachment.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, attachment.size());
+        assertTrue(attachment.isAttached(retained));
+    }
+
+    @Test
+    public void concurrentRaceAttachesOneValue() throws Exception {
+        final int threads = 8;
+        final LazyAttachment<Object, Object> attachment = new LazyAttachment<>(o -> new Object());
+        final Object key = new Object();
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executorService.submit(() -> attachment.get(key)));
+            }
+            final Object expected = results.get(0).get();
+            for (final Future<Object> result : results) {
+                assertSame(expected, result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyDerivedTest {
+
+    @Test
+    public void onlyAffectedDependentsRecompute() {
+        final LazyCell<Integer> price = new LazyCell<>(10);
+        final LazyCell<Integer> quantity = new LazyCell<>(2);
+        final LazyCell<Integer> discount = new LazyCell<>(1);
+
+        final AtomicInteger grossComputations = new AtomicInteger();
+        final LazyDerived<Integer> gross = new LazyDerived<>(() -> {
+            grossComputations.incrementAndGet();
+            return price.get() * quantity.get();
+        });
+        final AtomicInteger netComputations = new AtomicInteger();
+        final LazyDerived<Integer> net = new LazyDerived<>(() -> {
+            netComputations.incrementAndGet();
+            return gross.get() - discount.get();
+        });
+        final AtomicInteger discountedComputations = new AtomicInteger();
+        final LazyDerived<Integer> discounted = new LazyDerived<>(() -> {
+            discountedComputations.incrementAndGet();
+            return discount.get() * 100;
+        });
+
+        assertEquals(19, (int) net.get());
+        assertEquals(100, (int) discounted.get());
+        assertEquals(1, grossComputations.get());
+        assertEquals(1, netComputations.get());
+        assertEquals(1, discountedComputations.get());
+
+        // unchanged
+        assertEquals(19, (int) net.get());
+        assertEquals(1, netComputations.get());
+
+        // price only affects gross and net
+        price.set(20);
+        assertTrue(gross.isDirty());
+        assertTrue(net.isDirty());
+        assertFalse(discounted.isDirty());
+        assertEquals(39, (int) net.get());
+        assertEquals(100, (int) discounted.get());
+        assertEquals(2, grossComputations.get());
+        assertEquals(2, netComputations.get());
+        assertEquals(1, discountedComputations.get());
+
+        // discount only affects net and discounted
+        discount.set(2);
+        assertFalse(gross.isDirty());
+        assertEquals(38, (int) net.get());
+        assertEquals(200, (int) discounted.get());
+        assertEquals(2, grossComputations.get());
+        assertEquals(3, netComputations.get());
+        assertEquals(2, discountedComputations.get());
+    }
+
+    @Test
+    public void settingEqualValueDoesNotDirty() {
+        final LazyCell<String> cell = new LazyCell<>("a");
+        final LazyDerived<String> derived = new LazyDerived<>(() -> cell.get() + "!");
+
+        assertEquals("a!", derived.get());
+        cell.set("a");
+        assertFalse(derived.isDirty());
+    }
+
+    @Test
+    public void dynamicDependencies() {
+        final LazyCell<Boolean> useLeft = new LazyCell<>(true);
+        final LazyCell<String> left = new LazyCell<>("left");
+        final LazyCell<String> right = new LazyCell<>("right");
+        final LazyDerived<String> derived = new LazyDerived<>(() -> useLeft.get() ? left.get() : right.get());
+
+        assertEquals("left", derived.get());
+        right.set("right2");
+        assertFalse(derived.isDirty());
+
+        useLeft.set(false);
+        assertEquals("right2", derived.get());
+
+        // no longer depends on left
+        left.set("left2");
+        assertFalse(derived.isDirty());
+        right.set("right3");
+        assertTrue(derived.isDirty());
+        assertEquals("right3", derived.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cyclicDependency() {
+        final LazyDerived<?>[] derived = new LazyDerived<?>[2];
+        derived[0] = new LazyDerived<>(() -> derived[1].get());
+        derived[1] = new LazyDerived<>(() -> derived[0].get());
+        derived[0].get();
+    }
+}
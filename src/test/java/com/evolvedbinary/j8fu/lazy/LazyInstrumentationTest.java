@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Requires the system property {@value LazyInstrumentation#ENABLED_PROPERTY}
+ * to be set to true, which the lazy-instrumentation-test Surefire execution does.
+ */
+public class LazyInstrumentationTest {
+
+    @Test
+    public void enabled() {
+        assertTrue(LazyInstrumentation.ENABLED);
+    }
+
+    @Test
+    public void lazyValInitAndHits() {
+        new LazyVal<>(Object::new);  // ensure the class is initialized
+        final LazyStats stats = LazyInstrumentation.getStats(LazyVal.class);
+        final long inits = stats.getInitCount();
+        final long hits = stats.getHitCount();
+
+        final List<Long> initNanos = Collections.synchronizedList(new ArrayList<>());
+        final LazyListener listener = new LazyListener() {
+            @Override
+            public void initialized(final Class<?> type, final long nanos, final boolean recompute) {
+                if (type == LazyVal.class) {
+                    initNanos.add(nanos);
+                }
+            }
+        };
+        LazyInstrumentation.addListener(listener);
+        try {
+            final LazyVal<String> lazyVal = new LazyVal<>(() -> {
+                sleep(2);
+                return "hello";
+            });
+            lazyVal.get();
+            lazyVal.get();
+            lazyVal.get();
+        } finally {
+            LazyInstrumentation.removeListener(listener);
+        }
+
+        assertTrue(stats.getInitCount() - inits >= 1);
+        assertTrue(stats.getHitCount() - hits >= 2);
+        assertTrue(initNanos.stream().anyMatch(nanos -> nanos >= TimeUnit.MILLISECONDS.toNanos(2)));
+        assertTrue(stats.getInitTimeMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    @Test
+    public void softReferenceRecomputes() {
+        final MemoryPressureReclamationStrategy strategy = new MemoryPressureReclamationStrategy(1);
+        final LazySoftReference<String> lazyRef = new LazySoftReference<>(() -> "hello", strategy);
+        final LazyStats stats = LazyInstrumentation.getStats(LazySoftReference.class);
+        final long recomputes = stats.getRecomputeCount();
+
+        lazyRef.get();
+        strategy.reclaim();
+        lazyRef.get();
+
+        assertTrue(stats.getRecomputeCount() - recomputes >= 1);
+    }
+
+    @Test
+    public void synchronizedCollisionsAndWaiters() throws Exception {
+        final int threads = 4;
+        final CountDownLatch initializing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicLazyVal<String> lazyVal = new AtomicLazyVal<>(InitializationPolicy.SYNCHRONIZED, () -> {
+            initializing.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hello";
+        });
+        final LazyStats stats = LazyInstrumentation.getStats(AtomicLazyVal.class);
+        final long collisions = stats.getCollisionCount();
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            results.add(executorService.submit(lazyVal::get));
+            assertTrue(initializing.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                results.add(executorService.submit(lazyVal::get));
+            }
+
+            // wait for the other threads to block
+            for (int i = 0; i < 1_000 && stats.getWaiters() < threads; i++) {
+                Thread.sleep(5);
+            }
+            assertTrue(stats.getMaxWaiters() >= threads);
+
+            release.countDown();
+            for (final Future<String> result : results) {
+                assertEquals("hello", result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertTrue(stats.getCollisionCount() - collisions >= threads - 1);
+    }
+
+    @Test
+    public void mbeans() throws JMException {
+        new AtomicLazySoftReference<>(Object::new).get();
+        LazyInstrumentation.registerMBeans();
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final Object initCount = server.getAttribute(LazyInstrumentation.objectName(AtomicLazySoftReference.class), "InitCount");
+            assertNotNull(initCount);
+            assertTrue((Long) initCount >= 1);
+        } finally {
+            LazyInstrumentation.unregisterMBeans();
+        }
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        final Log2Histogram histogram = new Log2Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(10_000);
+        assertEquals(100, histogram.getCount());
+        assertEquals(127, histogram.getPercentile(50));
+        assertEquals(127, histogram.getPercentile(99));
+        assertEquals(16_383, histogram.getPercentile(100));
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
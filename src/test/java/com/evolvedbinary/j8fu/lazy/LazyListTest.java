@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyListTest {
+
+    @Test
+    public void empty() {
+        final LazyList<String> lazyList = new LazyList<>(Collections.<String>emptyList().iterator());
+        assertFalse(lazyList.iterator().hasNext());
+        assertEquals(0, lazyList.stream().count());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void nextWhenExhausted() {
+        new LazyList<>(Collections.emptyIterator()).iterator().next();
+    }
+
+    @Test
+    public void memoized() {
+        final AtomicInteger computed = new AtomicInteger();
+        final LazyList<Integer> lazyList = new LazyList<>(2, counting(5, computed));
+        assertEquals(0, computed.get());
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), toList(lazyList));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), toList(lazyList));
+        assertEquals(5, computed.get());
+    }
+
+    @Test
+    public void computedOnDemand() {
+        final AtomicInteger computed = new AtomicInteger();
+        final LazyList<Integer> lazyList = new LazyList<>(4, counting(100, computed));
+
+        final Iterator<Integer> first = lazyList.iterator();
+        assertEquals(0, (int) first.next());
+        assertEquals(1, (int) first.next());
+        assertEquals(2, computed.get());
+
+        // a second iterator shares the computed elements
+        final Iterator<Integer> second = lazyList.iterator();
+        assertEquals(0, (int) second.next());
+        assertEquals(1, (int) second.next());
+        assertEquals(2, (int) second.next());
+        assertEquals(3, computed.get());
+
+        assertEquals(2, (int) first.next());
+        assertEquals(3, computed.get());
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), lazyList.stream().limit(10).collect(Collectors.toList()));
+        assertEquals(10, computed.get());
+    }
+
+    @Test
+    public void concurrentIterators() throws Exception {
+        final int threads = 8;
+        final AtomicInteger computed = new AtomicInteger();
+        final LazyList<Integer> lazyList = new LazyList<>(3, counting(1_000, computed));
+        final List<Integer> expected = IntStream.range(0, 1_000).boxed().collect(Collectors.toList());
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executorService.submit(() -> toList(lazyList)));
+            }
+            for (final Future<List<Integer>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertEquals(1_000, computed.get());
+    }
+
+    @Test
+    public void sourceFailureIsRetried() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final LazyList<Integer> lazyList = new LazyList<>(new Iterator<Integer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < 2;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == 1 && attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("transient");
+                }
+                return next++;
+            }
+        });
+
+        final Iterator<Integer> it = lazyList.iterator();
+        assertEquals(0, (int) it.next());
+        try {
+            it.next();
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("transient", e.getMessage());
+        }
+        assertTrue(it.hasNext());
+        assertEquals(1, (int) it.next());
+        assertFalse(it.hasNext());
+    }
+
+    private static Iterator<Integer> counting(final int count, final AtomicInteger computed) {
+        return new Iterator<Integer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Integer next() {
+                computed.incrementAndGet();
+                return next++;
+            }
+        };
+    }
+
+    private static <T> List<T> toList(final Iterable<T> iterable) {
+        final List<T> list = new ArrayList<>();
+        for (final T element : iterable) {
+            list.add(element);
+        }
+        return list;
+    }
+}
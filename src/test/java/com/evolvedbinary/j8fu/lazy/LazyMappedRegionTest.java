@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyMappedRegionTest {
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("lazy-mapped-region", ".bin");
+        Files.write(file, "hello world".getBytes(UTF_8));
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void mapOnFirstAccess() throws IOException {
+        try (final LazyMappedRegion region = new LazyMappedRegion(file, FileChannel.MapMode.READ_ONLY, 6, 5)) {
+            assertFalse(region.isMapped());
+            assertEquals(0, region.getMappedBytes());
+
+            assertEquals("world", region.apply(LazyMappedRegionTest::readString));
+            assertTrue(region.isMapped());
+            assertEquals(5, region.getMappedBytes());
+
+            assertEquals("world", region.apply(LazyMappedRegionTest::readString));
+            assertEquals(1, region.getMapCount());
+        }
+    }
+
+    @Test
+    public void remapAfterInvalidate() throws IOException {
+        try (final LazyMappedRegion region = new LazyMappedRegion(file, FileChannel.MapMode.READ_ONLY, 0, 5)) {
+            final long totalMappedBytes = LazyMappedRegion.getTotalMappedBytes();
+            assertEquals("hello", region.apply(LazyMappedRegionTest::readString));
+            assertEquals(totalMappedBytes + 5, LazyMappedRegion.getTotalMappedBytes());
+
+            region.invalidate();
+            assertFalse(region.isMapped());
+            assertEquals(1, region.getUnmapCount());
+            assertEquals(totalMappedBytes, LazyMappedRegion.getTotalMappedBytes());
+
+            assertEquals("hello", region.apply(LazyMappedRegionTest::readString));
+            assertEquals(2, region.getMapCount());
+        }
+    }
+
+    @Test
+    public void readWrite() throws IOException {
+        try (final LazyMappedRegion region = new LazyMappedRegion(file, FileChannel.MapMode.READ_WRITE, 0, 5)) {
+            region.apply(buffer -> buffer.put("HELLO".getBytes(UTF_8)));
+        }
+        assertEquals("HELLO world", new String(Files.readAllBytes(file), UTF_8));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void applyAfterClose() throws IOException {
+        final LazyMappedRegion region = new LazyMappedRegion(file, FileChannel.MapMode.READ_ONLY, 0, 5);
+        region.apply(LazyMappedRegionTest::readString);
+        region.close();
+        assertFalse(region.isMapped());
+        region.apply(LazyMappedRegionTest::readString);
+    }
+
+    @Test
+    public void nestedUnmapFailsFast() throws IOException {
+        try (final LazyMappedRegion region = new LazyMappedRegion(file, FileChannel.MapMode.READ_ONLY, 0, 5)) {
+            assertEquals("hello", region.apply(buffer -> {
+                try {
+                    region.invalidate();
+                    fail("expected IllegalStateException");
+                } catch (final IllegalStateException e) {
+                    // expected
+                }
+                return readString(buffer);
+            }));
+            assertTrue(region.isMapped());
+        }
+    }
+
+    @Test
+    public void nestedApply() throws IOException {
+        try (final LazyMappedRegion outer = new LazyMappedRegion(file, FileChannel.MapMode.READ_ONLY, 0, 5)) {
+            outer.apply(buffer -> {
+                // the inner region is mapped by its own lock, so nesting distinct regions is fine
+                try (final LazyMappedRegion inner = new LazyMappedRegion(file, FileChannel.MapMode.READ_ONLY, 6, 5)) {
+                    assertEquals("world", inner.apply(LazyMappedRegionTest::readString));
+                }
+                // the buffer is already mapped, so a nested apply of the same region is fine
+                assertEquals("hello", outer.apply(LazyMappedRegionTest::readString));
+                return null;
+            });
+        }
+    }
+
+    @Test
+    public void unmapperUsesPlatformCleaner() throws IOException {
+        try (final FileChannel channel = FileChannel.open(file)) {
+            assertTrue(Unmapper.unmap(channel.map(FileChannel.MapMode.READ_ONLY, 0, 5)));
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
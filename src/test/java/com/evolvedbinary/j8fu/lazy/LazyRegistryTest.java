@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyRegistryTest {
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setupExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownExecutor() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void warmUpInDependencyOrder() {
+        final List<String> initOrder = Collections.synchronizedList(new ArrayList<>());
+        final AtomicLazyVal<String> config = new AtomicLazyVal<>(() -> record(initOrder, "config", 0));
+        final AtomicLazyVal<String> index = new AtomicLazyVal<>(() -> record(initOrder, "index", 20));
+        final AtomicLazyVal<String> templates = new AtomicLazyVal<>(() -> record(initOrder, "templates", 0));
+        final AtomicLazyVal<String> search = new AtomicLazyVal<>(() -> record(initOrder, "search", 0));
+
+        // registered out of dependency order
+        final LazyRegistry registry = new LazyRegistry()
+                .register("search", search::get, "index", "templates")
+                .register("index", index::get, "config")
+                .register("templates", templates::get, "config")
+                .register("config", config::get);
+
+        final LazyRegistry.WarmUpReport report = registry.warmUp(executor).join();
+
+        assertTrue(report.isSuccess());
+        assertTrue(config.isInitialized());
+        assertTrue(index.isInitialized());
+        assertTrue(templates.isInitialized());
+        assertTrue(search.isInitialized());
+
+        assertEquals("config", initOrder.get(0));
+        assertEquals("search", initOrder.get(3));
+
+        assertEquals(Arrays.asList("config", "index", "templates", "search"), new ArrayList<>(report.getTimings().keySet()));
+        assertEquals(Arrays.asList("config", "index", "search"), report.getCriticalPath());
+    }
+
+    @Test
+    public void failedDependencySkipsDependents() {
+        final List<String> initOrder = Collections.synchronizedList(new ArrayList<>());
+        final LazyRegistry registry = new LazyRegistry()
+                .register("config", () -> {
+                    throw new IllegalStateException("no config");
+                })
+                .register("index", () -> record(initOrder, "index", 0), "config")
+                .register("other", () -> record(initOrder, "other", 0));
+
+        final LazyRegistry.WarmUpReport report = registry.warmUp(executor).join();
+
+        assertFalse(report.isSuccess());
+        assertEquals(Collections.singletonList("other"), initOrder);
+        assertEquals(2, report.getFailures().size());
+        assertTrue(report.getFailures().get("config") instanceof IllegalStateException);
+        assertTrue(report.getFailures().get("index") instanceof IllegalStateException);
+        assertEquals(Collections.singleton("other"), report.getTimings().keySet());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateName() {
+        new LazyRegistry()
+                .register("a", () -> "a")
+                .register("a", () -> "a");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingDependency() {
+        new LazyRegistry()
+                .register("a", () -> "a", "b")
+                .warmUp(executor);
+    }
+
+    @Test
+    public void cyclicDependency() {
+        final LazyRegistry registry = new LazyRegistry()
+                .register("a", () -> "a", "c")
+                .register("b", () -> "b", "a")
+                .register("c", () -> "c", "b");
+        try {
+            registry.warmUp(executor);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("Cyclic dependency between lazy values: a -> c -> b -> a", e.getMessage());
+        }
+    }
+
+    private static String record(final List<String> initOrder, final String name, final long sleepMillis) {
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        initOrder.add(name);
+        return name;
+    }
+}
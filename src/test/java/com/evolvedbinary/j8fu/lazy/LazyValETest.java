@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import com.evolvedbinary.j8fu.Either;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.evolvedbinary.j8fu.Either.Left;
+import static com.evolvedbinary.j8fu.Either.Right;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LazyValETest {
+
+    @Test
+    public void failureIsCachedForeverByDefault() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final LazyValE<String, IOException> lazyVal = new LazyValE<>(() -> {
+            invocations.incrementAndGet();
+            return Left(new IOException("failed"));
+        });
+
+        assertFails(lazyVal);
+        assertFails(lazyVal);
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    public void retryAfterFailureTtl() throws IOException {
+        final AtomicLong clock = new AtomicLong();
+        final AtomicInteger invocations = new AtomicInteger();
+        final LazyValE<String, IOException> lazyVal = new LazyValE<>(() -> {
+            if (invocations.incrementAndGet() < 3) {
+                return Left(new IOException("failed"));
+            }
+            return Right("hello");
+        }, RetryPolicy.retryAfter(10, TimeUnit.NANOSECONDS).withBackoff(2, 100, TimeUnit.NANOSECONDS), clock::get);
+
+        assertFails(lazyVal);
+
+        // the failure is cached for the ttl
+        clock.set(9);
+        assertFails(lazyVal);
+        assertEquals(1, invocations.get());
+
+        clock.set(10);
+        assertFails(lazyVal);
+        assertEquals(2, invocations.get());
+
+        // the second failure is cached for twice the ttl
+        clock.set(29);
+        assertFails(lazyVal);
+        assertEquals(2, invocations.get());
+
+        clock.set(30);
+        assertEquals("hello", lazyVal.get());
+        assertEquals(3, invocations.get());
+
+        // success is cached forever
+        clock.set(1_000);
+        assertEquals("hello", lazyVal.get());
+        assertEquals(3, invocations.get());
+    }
+
+    private static void assertFails(final LazyValE<String, IOException> lazyVal) {
+        try {
+            lazyVal.get();
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryPressureReclamationStrategyTest {
+
+    @Test
+    public void reclaimLeastRecentlyUsed() {
+        final MemoryPressureReclamationStrategy strategy = new MemoryPressureReclamationStrategy(0.5);
+        final AtomicInteger invocations = new AtomicInteger();
+        final LazySoftReference<String> a = new LazySoftReference<>(() -> { invocations.incrementAndGet(); return "a"; }, strategy);
+        final LazySoftReference<String> b = new LazySoftReference<>(() -> { invocations.incrementAndGet(); return "b"; }, strategy);
+        final AtomicLazySoftReference<String> c = new AtomicLazySoftReference<>(() -> { invocations.incrementAndGet(); return "c"; }, strategy);
+        final AtomicLazySoftReference<String> d = new AtomicLazySoftReference<>(() -> { invocations.incrementAndGet(); return "d"; }, strategy);
+
+        assertEquals("a", a.get());
+        assertEquals("b", b.get());
+        assertEquals("c", c.get());
+        assertEquals("d", d.get());
+        assertEquals(4, strategy.getHeldCount());
+
+        strategy.reclaim();
+        assertEquals(2, strategy.getClearCount());
+        assertEquals(2, strategy.getHeldCount());
+
+        // the first two held values were the least recently used
+        assertTrue(a.isCleared());
+        assertTrue(b.isCleared());
+        assertFalse(c.isCleared());
+        assertFalse(d.isCleared());
+
+        assertEquals("a", a.get());
+        assertEquals("b", b.get());
+        assertEquals("c", c.get());
+        assertEquals(6, invocations.get());
+        assertEquals(2, strategy.getRecomputeCount());
+    }
+
+    @Test
+    public void recentlyUsedValuesAreKept() {
+        final MemoryPressureReclamationStrategy strategy = new MemoryPressureReclamationStrategy(0.25);
+        final LazySoftReference<String> a = new LazySoftReference<>(() -> "a", strategy);
+        final LazySoftReference<String> b = new LazySoftReference<>(() -> "b", strategy);
+        final LazySoftReference<String> c = new LazySoftReference<>(() -> "c", strategy);
+        final LazySoftReference<String> d = new LazySoftReference<>(() -> "d", strategy);
+        a.get();
+        b.get();
+        c.get();
+        d.get();
+
+        // use a and b again after d was held, making c the least recently used
+        a.get();
+        b.get();
+        strategy.reclaim();
+
+        assertFalse(a.isCleared());
+        assertFalse(b.isCleared());
+        assertTrue(c.isCleared());
+        assertFalse(d.isCleared());
+    }
+
+    @Test
+    public void reclaimByWeight() {
+        final MemoryPressureReclamationStrategy strategy = new MemoryPressureReclamationStrategy(value -> ((String) value).length(), 0.5);
+        final LazySoftReference<String> big = new LazySoftReference<>(() -> "0123456789", strategy);
+        final LazySoftReference<String> small1 = new LazySoftReference<>(() -> "0", strategy);
+        final LazySoftReference<String> small2 = new LazySoftReference<>(() -> "1", strategy);
+        big.get();
+        small1.get();
+        small2.get();
+
+        assertEquals(10, strategy.reclaim());
+        assertTrue(big.isCleared());
+        assertFalse(small1.isCleared());
+        assertFalse(small2.isCleared());
+        assertEquals(10, strategy.getClearedWeight());
+    }
+
+    @Test
+    public void listenAndClose() {
+        try (final MemoryPressureReclamationStrategy strategy = new MemoryPressureReclamationStrategy(0.25)) {
+            strategy.listen(0.9);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidReclaimFraction() {
+        new MemoryPressureReclamationStrategy(0);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResettableLazyValTest {
+
+    @Test
+    public void invalidate() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final ResettableLazyVal<String> lazyVal = new ResettableLazyVal<>(() -> "v" + invocations.incrementAndGet());
+
+        assertFalse(lazyVal.isInitialized());
+        assertEquals("v1", lazyVal.get());
+        assertEquals("v1", lazyVal.get());
+        assertTrue(lazyVal.isInitialized());
+
+        lazyVal.invalidate();
+        assertFalse(lazyVal.isInitialized());
+        assertEquals("v2", lazyVal.get());
+        assertEquals(2, invocations.get());
+    }
+
+    @Test
+    public void advanceEpoch() {
+        final LazyEpoch epoch = new LazyEpoch();
+        final AtomicInteger invocations = new AtomicInteger();
+        final ResettableLazyVal<Integer> a = new ResettableLazyVal<>(epoch, invocations::incrementAndGet);
+        final ResettableLazyVal<Integer> b = new ResettableLazyVal<>(epoch, invocations::incrementAndGet);
+
+        assertEquals(1, (int) a.get());
+        assertEquals(2, (int) b.get());
+
+        epoch.advance();
+        assertFalse(a.isInitialized());
+        assertFalse(b.isInitialized());
+        assertEquals(3, (int) a.get());
+        assertEquals(4, (int) b.get());
+        assertEquals(3, (int) a.get());
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.lazy;
+
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StripedLazyValTest {
+
+    @Test
+    public void stripeCountIsPowerOfTwo() {
+        assertEquals(1, new StripedLazyVal<>(1, Object::new, null).getStripeCount());
+        assertEquals(4, new StripedLazyVal<>(3, Object::new, null).getStripeCount());
+        assertEquals(8, new StripedLazyVal<>(8, Object::new, null).getStripeCount());
+    }
+
+    @Test
+    public void lazilyInitialized() {
+        final AtomicInteger invocations = new AtomicInteger();
+        final StripedLazyVal<StringBuilder> lazyVal = new StripedLazyVal<>(4, () -> {
+            invocations.incrementAndGet();
+            return new StringBuilder();
+        }, null);
+
+        assertEquals(0, lazyVal.getInitializedCount());
+        lazyVal.apply(sb -> sb.append('a'));
+        assertEquals(1, lazyVal.getInitializedCount());
+
+        // the same thread reuses the same (uncontended) stripe
+        assertEquals("aa", lazyVal.apply(sb -> sb.append('a').toString()));
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    public void concurrentUseIsBoundedByStripes() throws Exception {
+        final int threads = 16;
+        final StripedLazyVal<MessageDigest> digests = new StripedLazyVal<>(2, () -> {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }, MessageDigest::reset);
+        final byte[] expected = MessageDigest.getInstance("SHA-256").digest("hello".getBytes(UTF_8));
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < threads * 100; i++) {
+                results.add(executorService.submit(() -> digests.apply(digest -> digest.digest("hello".getBytes(UTF_8)))));
+            }
+            for (final Future<byte[]> result : results) {
+                assertArrayEquals(expected, result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertTrue(digests.getInitializedCount() <= 2);
+    }
+
+    @Test
+    public void closeCleansUp() {
+        final List<StringBuilder> cleaned = new ArrayList<>();
+        final StripedLazyVal<StringBuilder> lazyVal = new StripedLazyVal<>(4, StringBuilder::new, cleaned::add);
+        lazyVal.apply(sb -> sb.append("a"));
+
+        lazyVal.close();
+        assertEquals(1, cleaned.size());
+        assertEquals("a", cleaned.get(0).toString());
+        assertEquals(0, lazyVal.getInitializedCount());
+
+        // closing again is a no-op
+        lazyVal.close();
+        assertEquals(1, cleaned.size());
+    }
+
+    @Test
+    public void nestedApplyUsesAnotherInstance() {
+        final StripedLazyVal<StringBuilder> lazyVal = new StripedLazyVal<>(2, StringBuilder::new, null);
+
+        final String result = lazyVal.apply(outer -> {
+            outer.append("outer");
+            final String inner = lazyVal.apply(nested -> {
+                assertNotSame(outer, nested);
+                return nested.append("inner").toString();
+            });
+            return outer.append(inner).toString();
+        });
+        assertEquals("outerinner", result);
+
+        // every stripe is held by this thread, so the innermost call is given a new instance
+        final List<StringBuilder> used = new ArrayList<>();
+        lazyVal.apply(a -> lazyVal.apply(b -> lazyVal.apply(c -> {
+            used.add(a);
+            used.add(b);
+            used.add(c);
+            return c;
+        })));
+        assertNotSame(used.get(0), used.get(2));
+        assertNotSame(used.get(1), used.get(2));
+        assertEquals(2, lazyVal.getInitializedCount());
+    }
+
+    @Test
+    public void concurrentNestedApplyDoesNotDeadlock() throws InterruptedException {
+        final StripedLazyVal<StringBuilder> lazyVal = new StripedLazyVal<>(2, StringBuilder::new, null);
+        final CyclicBarrier bothHoldAStripe = new CyclicBarrier(2);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        final Runnable nested = () -> {
+            try {
+                lazyVal.apply(outer -> {
+                    bothHoldAStripe.await(10, TimeUnit.SECONDS);
+                    return lazyVal.apply(inner -> inner.append("inner").toString());
+                });
+            } catch (final Throwable t) {
+                failure.set(t);
+            }
+        };
+        final Thread first = new Thread(nested);
+        final Thread second = new Thread(nested);
+        first.start();
+        second.start();
+        first.join(TimeUnit.SECONDS.toMillis(30));
+        second.join(TimeUnit.SECONDS.toMillis(30));
+
+        assertFalse("deadlocked", first.isAlive() || second.isAlive());
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void closeCleansUpAllDespiteFailures() {
+        final StripedLazyVal<AtomicInteger> lazyVal = new StripedLazyVal<>(2, AtomicInteger::new, instance -> {
+            instance.incrementAndGet();
+            throw new IllegalStateException("cleanup failed");
+        });
+        final List<AtomicInteger> instances = new ArrayList<>();
+        lazyVal.apply(a -> {
+            instances.add(a);
+            return lazyVal.apply(instances::add);
+        });
+
+        try {
+            lazyVal.close();
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals(1, e.getSuppressed().length);
+        }
+        assertEquals(1, instances.get(0).get());
+        assertEquals(1, instances.get(1).get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void applyAfterClose() {
+        final StripedLazyVal<StringBuilder> lazyVal = new StripedLazyVal<>(StringBuilder::new);
+        lazyVal.close();
+        lazyVal.apply(StringBuilder::length);
+    }
+}
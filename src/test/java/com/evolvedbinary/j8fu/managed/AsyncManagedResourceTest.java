@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.evolvedbinary.j8fu.managed.AsyncManagedResource.managedAsync;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncManagedResourceTest {
+
+    @Test
+    public void releasedOnCompletion() {
+        final List<String> released = new ArrayList<>();
+        final CompletableFuture<String> mapping = new CompletableFuture<>();
+        final CompletableFuture<String> result = managedAsync("subject", s -> CompletableFuture.completedFuture("resource"), (s, r) -> released.add(r))
+                .mapAsync(resource -> mapping);
+
+        assertFalse(result.isDone());
+        assertTrue(released.isEmpty());
+
+        mapping.complete("hello");
+        assertEquals("hello", result.join());
+        assertEquals(1, released.size());
+        assertEquals("resource", released.get(0));
+    }
+
+    @Test
+    public void releasedOnFailure() {
+        final List<String> released = new ArrayList<>();
+        final IllegalStateException failure = new IllegalStateException("failed");
+        final CompletableFuture<String> result = managedAsync("subject", s -> CompletableFuture.completedFuture("resource"), (s, r) -> released.add(r))
+                .mapAsync(resource -> {
+                    final CompletableFuture<String> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(failure);
+                    return failed;
+                });
+
+        assertFailure(result, failure);
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    public void releasedWhenMapperThrows() {
+        final List<String> released = new ArrayList<>();
+        final IllegalStateException failure = new IllegalStateException("failed");
+        final CompletableFuture<String> result = managedAsync("subject", s -> CompletableFuture.completedFuture("resource"), (s, r) -> released.add(r))
+                .<String>mapAsync(resource -> {
+                    throw failure;
+                });
+
+        assertFailure(result, failure);
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    public void acquireFailureReleasesNull() {
+        final List<String> released = new ArrayList<>();
+        final IllegalStateException failure = new IllegalStateException("failed");
+        final CompletableFuture<String> acquisition = new CompletableFuture<>();
+        acquisition.completeExceptionally(failure);
+        final AtomicInteger mapped = new AtomicInteger();
+        final CompletableFuture<String> result = managedAsync("subject", s -> acquisition, (s, r) -> released.add(r))
+                .mapAsync(resource -> {
+                    mapped.incrementAndGet();
+                    return CompletableFuture.completedFuture(resource);
+                });
+
+        assertFailure(result, failure);
+        assertEquals(0, mapped.get());
+        assertEquals(1, released.size());
+        assertNull(released.get(0));
+    }
+
+    @Test
+    public void releaseFailureIsSuppressed() {
+        final IllegalStateException failure = new IllegalStateException("failed");
+        final IllegalStateException releaseFailure = new IllegalStateException("release failed");
+        final CompletableFuture<String> result = managedAsync("subject", s -> CompletableFuture.completedFuture("resource"), (s, r) -> {
+            throw releaseFailure;
+        }).<String>mapAsync(resource -> {
+            throw failure;
+        });
+
+        assertFailure(result, failure);
+        assertSame(releaseFailure, failure.getSuppressed()[0]);
+    }
+
+    @Test
+    public void sameReleaseFailureIsNotSuppressed() {
+        final IllegalStateException failure = new IllegalStateException("failed");
+        final CompletableFuture<String> result = managedAsync("subject", s -> CompletableFuture.completedFuture("resource"), (s, r) -> {
+            throw failure;
+        }).<String>mapAsync(resource -> {
+            throw failure;
+        });
+
+        assertFailure(result, failure);
+        assertEquals(0, failure.getSuppressed().length);
+    }
+
+    @Test
+    public void cancelWhilstMapping() {
+        final List<String> released = new ArrayList<>();
+        final CompletableFuture<String> mapping = new CompletableFuture<>();
+        final CompletableFuture<String> result = managedAsync("subject", s -> CompletableFuture.completedFuture("resource"), (s, r) -> released.add(r))
+                .mapAsync(resource -> mapping);
+
+        result.cancel(false);
+        assertTrue(result.isCancelled());
+        // the mapper may still be using the resource
+        assertFalse(mapping.isCancelled());
+        assertTrue(released.isEmpty());
+
+        mapping.complete("done");
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    public void cancelWhilstAsyncMapperRunsDoesNotReleaseEarly() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final CountDownLatch mapping = new CountDownLatch(1);
+            final CountDownLatch cancelled = new CountDownLatch(1);
+            final AtomicBoolean released = new AtomicBoolean();
+            final AtomicBoolean usedAfterRelease = new AtomicBoolean();
+            final CountDownLatch releasedLatch = new CountDownLatch(1);
+
+            final CompletableFuture<String> result = managedAsync("subject", s -> CompletableFuture.completedFuture("resource"), (s, r) -> {
+                released.set(true);
+                releasedLatch.countDown();
+            }).mapAsync(resource -> CompletableFuture.supplyAsync(() -> {
+                mapping.countDown();
+                try {
+                    cancelled.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // still using the resource after the result was cancelled
+                usedAfterRelease.set(released.get());
+                return resource;
+            }, executor));
+
+            assertTrue(mapping.await(10, TimeUnit.SECONDS));
+            result.cancel(false);
+            assertFalse(released.get());
+            cancelled.countDown();
+
+            assertTrue(releasedLatch.await(10, TimeUnit.SECONDS));
+            assertFalse(usedAfterRelease.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelWhilstAcquiring() {
+        final List<String> released = new ArrayList<>();
+        final CompletableFuture<String> acquisition = new CompletableFuture<>();
+        final AtomicInteger mapped = new AtomicInteger();
+        final CompletableFuture<String> result = managedAsync("subject", s -> acquisition, (s, r) -> released.add(r))
+                .mapAsync(resource -> {
+                    mapped.incrementAndGet();
+                    return CompletableFuture.completedFuture(resource);
+                });
+
+        result.cancel(false);
+        assertFalse(acquisition.isCancelled());
+        assertTrue(released.isEmpty());
+
+        // the resource which is acquired later is released, without being mapped
+        acquisition.complete("resource");
+        assertEquals(0, mapped.get());
+        assertEquals(1, released.size());
+        assertEquals("resource", released.get(0));
+    }
+
+    @Test
+    public void pooledWithoutBlocking() {
+        try (final ManagedPool<StringBuilder> pool = ManagedPool.builder(StringBuilder::new).maxSize(1).build()) {
+            final CompletableFuture<String> first = new CompletableFuture<>();
+            final CompletableFuture<String> firstResult = managedAsync(pool, ManagedPool::borrowAsync, ManagedPool::release)
+                    .mapAsync(sb -> first);
+
+            // the pool is exhausted, so the second waits without blocking a thread
+            final CompletableFuture<String> secondResult = managedAsync(pool, ManagedPool::borrowAsync, ManagedPool::release)
+                    .mapAsync(sb -> CompletableFuture.completedFuture(sb.append("second").toString()));
+            assertFalse(secondResult.isDone());
+            assertEquals(1, pool.getBorrowedCount());
+
+            first.complete("first");
+            assertEquals("first", firstResult.join());
+            assertEquals("second", secondResult.join());
+            assertEquals(0, pool.getBorrowedCount());
+        }
+    }
+
+    @Test
+    public void cancelledPoolWaiterDoesNotLeak() throws Exception {
+        try (final ManagedPool<Object> pool = ManagedPool.builder(Object::new).maxSize(1).build()) {
+            final Object borrowed = pool.borrow();
+            final CompletableFuture<Object> waiter = pool.borrowAsync();
+            waiter.cancel(false);
+
+            pool.release(borrowed);
+            assertEquals(0, pool.getBorrowedCount());
+            assertSame(borrowed, pool.borrowAsync().get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void assertFailure(final CompletableFuture<?> result, final Throwable expected) {
+        try {
+            result.join();
+            fail("Expected failure");
+        } catch (final CompletionException e) {
+            assertSame(expected, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.evolvedbinary.j8fu.managed.ManagedResource.managed;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KeepAliveTest {
+
+    @Test
+    public void reusesWithinIdleTimeout() {
+        final AtomicLong clock = new AtomicLong();
+        final KeepAlive<String, Session> keepAlive = new KeepAlive<>(TimeUnit.SECONDS.toNanos(1), clock::get, null);
+        final SessionFactory factory = new SessionFactory();
+
+        for (int i = 0; i < 100; i++) {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+            final String user = managed("user", factory::open, factory::close)
+                    .withKeepAlive(keepAlive)
+                    .map(Session::getUser);
+            assertEquals("user", user);
+        }
+
+        assertEquals(1, factory.opened.get());
+        assertEquals(0, factory.closed.get());
+        assertEquals(99, keepAlive.getReuseCount());
+        assertEquals(1, keepAlive.getIdleCount());
+
+        // still within the idle timeout
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, keepAlive.sweep());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        assertEquals(1, keepAlive.sweep());
+        assertEquals(1, factory.closed.get());
+        assertEquals(1, keepAlive.getExpiredCount());
+        assertEquals(0, keepAlive.getIdleCount());
+
+        // the empty slot is removed on the next sweep, and a new session is opened on the next use
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, keepAlive.sweep());
+        managed("user", factory::open, factory::close).withKeepAlive(keepAlive).map(Session::getUser);
+        assertEquals(2, factory.opened.get());
+    }
+
+    @Test
+    public void failedMapperReleasesImmediately() {
+        final KeepAlive<String, Session> keepAlive = new KeepAlive<>(TimeUnit.SECONDS.toNanos(1), System::nanoTime, null);
+        final SessionFactory factory = new SessionFactory();
+
+        try {
+            managed("user", factory::open, factory::close).withKeepAlive(keepAlive).map(session -> {
+                throw new IllegalStateException("broken session");
+            });
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(1, factory.closed.get());
+        assertEquals(0, keepAlive.getIdleCount());
+    }
+
+    @Test
+    public void closeReleasesIdle() {
+        final KeepAlive<String, Session> keepAlive = new KeepAlive<>(TimeUnit.SECONDS.toNanos(1), System::nanoTime, null);
+        final SessionFactory factory = new SessionFactory();
+
+        managed("alice", factory::open, factory::close).withKeepAlive(keepAlive).map(Session::getUser);
+        managed("bob", factory::open, factory::close).withKeepAlive(keepAlive).map(Session::getUser);
+        assertEquals(2, keepAlive.getIdleCount());
+
+        keepAlive.close();
+        assertEquals(2, factory.closed.get());
+
+        // once closed, resources are no longer kept alive
+        managed("alice", factory::open, factory::close).withKeepAlive(keepAlive).map(Session::getUser);
+        assertEquals(3, factory.opened.get());
+        assertEquals(3, factory.closed.get());
+    }
+
+    @Test
+    public void sweeperReleasesInBackground() throws InterruptedException {
+        final CountDownLatch released = new CountDownLatch(1);
+        try (final TimerWheel wheel = new TimerWheel("test-sweeper", TimeUnit.MILLISECONDS.toNanos(1), 64, System::nanoTime, true)) {
+            final KeepAlive<String, Session> keepAlive = new KeepAlive<>(TimeUnit.MILLISECONDS.toNanos(20), System::nanoTime, wheel);
+            final SessionFactory factory = new SessionFactory() {
+                @Override
+                void close(final String user, final Session session) {
+                    super.close(user, session);
+                    released.countDown();
+                }
+            };
+
+            managed("user", factory::open, factory::close).withKeepAlive(keepAlive).map(Session::getUser);
+            assertEquals(0, factory.closed.get());
+
+            assertTrue(released.await(10, TimeUnit.SECONDS));
+            assertEquals(1, keepAlive.getExpiredCount());
+        }
+    }
+
+    static class SessionFactory {
+        final AtomicInteger opened = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+
+        Session open(final String user) {
+            opened.incrementAndGet();
+            return new Session(user);
+        }
+
+        void close(final String user, final Session session) {
+            closed.incrementAndGet();
+        }
+    }
+
+    static class Session {
+        private final String user;
+
+        Session(final String user) {
+            this.user = user;
+        }
+
+        String getUser() {
+            return user;
+        }
+    }
+}
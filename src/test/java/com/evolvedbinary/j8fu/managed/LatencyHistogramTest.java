@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import com.evolvedbinary.j8fu.Either;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.evolvedbinary.j8fu.managed.ManagedResource.managed;
+import static com.evolvedbinary.j8fu.managed.ManagedResourceE.managedE;
+import static com.evolvedbinary.j8fu.managed.ManagedResourceEither.managedEither;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBounds() {
+        for (long value : new long[] { 0, 1, 7, 8, 9, 15, 16, 17, 100, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE }) {
+            final int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value + " >= lower", value >= LatencyHistogram.lowerBound(bucket));
+            assertTrue(value + " <= upper", value <= LatencyHistogram.upperBound(bucket));
+            // log-linear, so within 12.5%
+            assertTrue(LatencyHistogram.upperBound(bucket) - LatencyHistogram.lowerBound(bucket) <= Math.max(1, value / 8));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i);
+        }
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1_000, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMean(), 0.001);
+        assertEquals(1, snapshot.getMin());
+        assertWithin(1_000, snapshot.getMax());
+        assertWithin(500, snapshot.getPercentile(50));
+        assertWithin(990, snapshot.getPercentile(99));
+    }
+
+    @Test
+    public void snapshotAndReset() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(20);
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getPercentile(99));
+
+        histogram.record(30);
+        assertEquals(1, histogram.snapshot().getCount());
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void concurrentSnapshotAndResetLosesNothing() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int writers = 4;
+        final int values = 100_000;
+        final Thread[] threads = new Thread[writers];
+        for (int i = 0; i < writers; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < values; j++) {
+                    histogram.record(10);
+                }
+            });
+            threads[i].start();
+        }
+
+        long count = 0;
+        boolean writing = true;
+        while (writing) {
+            writing = false;
+            for (final Thread thread : threads) {
+                writing |= thread.isAlive();
+            }
+            final LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+            // the count and sum of a snapshot agree
+            assertEquals(snapshot.getCount() == 0 ? 0 : 10, snapshot.getMean(), 0);
+            count += snapshot.getCount();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        count += histogram.snapshotAndReset().getCount();
+
+        assertEquals((long) writers * values, count);
+    }
+
+    @Test
+    public void managedResourceMetrics() throws Exception {
+        final ResourceMetrics metrics = new ResourceMetrics();
+
+        managed("subject", subject -> {
+            sleep(2);
+            return subject;
+        }, (subject, resource) -> {}, metrics).map(resource -> {
+            sleep(5);
+            return resource;
+        });
+
+        managedE("subject", subject -> subject, (subject, resource) -> {}, metrics).map(String::length);
+
+        final Either<List<Exception>, Integer> result = managedEither("subject", subject -> subject, (subject, resource) -> {}, metrics).map(String::length);
+        assertEquals(7, (int) result.right().get());
+
+        final LatencyHistogram.Snapshot waitTime = metrics.getWaitTime().snapshot();
+        final LatencyHistogram.Snapshot holdTime = metrics.getHoldTime().snapshot();
+        assertEquals(3, waitTime.getCount());
+        assertEquals(3, holdTime.getCount());
+        assertTrue(waitTime.getMax() >= TimeUnit.MILLISECONDS.toNanos(2));
+        assertTrue(holdTime.getMax() >= TimeUnit.MILLISECONDS.toNanos(5));
+
+        metrics.reset();
+        assertEquals(0, metrics.getWaitTime().snapshot().getCount());
+    }
+
+    @Test
+    public void failedAcquisitionIsNotHeld() {
+        final ResourceMetrics metrics = new ResourceMetrics();
+        try {
+            managed("subject", subject -> {
+                throw new IllegalStateException();
+            }, (subject, resource) -> {}, metrics).map(resource -> resource);
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals(0, metrics.getWaitTime().snapshot().getCount());
+        assertEquals(0, metrics.getHoldTime().snapshot().getCount());
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        assertTrue(actual + " within 12.5% of " + expected, Math.abs(actual - expected) <= expected / 8);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.evolvedbinary.j8fu.managed.ManagedResource.managed;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LeaseReaperTest {
+
+    @Test
+    public void timerWheelExpiresOnlyDueTimeouts() {
+        final AtomicLong clock = new AtomicLong();
+        final TimerWheel wheel = new TimerWheel("test", 10, 8, clock::get, false);
+        final List<String> ran = new ArrayList<>();
+
+        wheel.schedule(25, () -> ran.add("short"));
+        wheel.schedule(1_000, () -> ran.add("long"));   // several rotations ahead
+        final TimerWheel.Timeout cancelled = wheel.schedule(25, () -> ran.add("cancelled"));
+        assertTrue(cancelled.cancel());
+
+        clock.set(20);
+        assertEquals(0, wheel.advance());
+
+        clock.set(30);
+        assertEquals(1, wheel.advance());
+        assertEquals("short", ran.get(0));
+        assertFalse(cancelled.isExpired());
+
+        clock.set(990);
+        assertEquals(0, wheel.advance());
+
+        // a long pause visits each bucket at most once
+        clock.set(100_000);
+        assertEquals(1, wheel.advance());
+        assertEquals(2, ran.size());
+        assertEquals("long", ran.get(1));
+
+        wheel.close();
+        try {
+            wheel.schedule(10, () -> {});
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void releasedLeaseDoesNotExpire() {
+        final AtomicLong clock = new AtomicLong();
+        final LeaseReaper reaper = LeaseReaper.builder().nanoClock(clock::get).worker(false).build();
+        final AtomicInteger released = new AtomicInteger();
+
+        final String result = managed("subject", subject -> subject, (subject, resource) -> released.incrementAndGet())
+                .withLease(reaper, 100, TimeUnit.MILLISECONDS)
+                .map(resource -> {
+                    assertEquals(1, reaper.getActiveCount());
+                    return resource;
+                });
+
+        assertEquals("subject", result);
+        assertEquals(1, released.get());
+        assertEquals(0, reaper.getActiveCount());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, reaper.advance());
+        assertEquals(1, released.get());
+        assertEquals(1, reaper.getGrantedCount());
+        assertEquals(0, reaper.getExpiredCount());
+    }
+
+    @Test
+    public void expiredLeaseIsReclaimedOnce() throws InterruptedException {
+        final AtomicLong clock = new AtomicLong();
+        final AtomicReference<LeaseExpiredException> reported = new AtomicReference<>();
+        final LeaseReaper reaper = LeaseReaper.builder()
+                .nanoClock(clock::get)
+                .worker(false)
+                .interrupt(true)
+                .reporter(reported::set)
+                .build();
+        final AtomicInteger released = new AtomicInteger();
+        final CountDownLatch mapping = new CountDownLatch(1);
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final AtomicReference<Boolean> interruptedAfter = new AtomicReference<>();
+
+        final Thread holder = new Thread(() -> {
+            try {
+                managed("subject", subject -> subject, (subject, resource) -> released.incrementAndGet())
+                        .withLease(reaper, 100, TimeUnit.MILLISECONDS)
+                        .map(resource -> {
+                            mapping.countDown();
+                            try {
+                                // stuck until interrupted by the reaper
+                                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                            } catch (final InterruptedException e) {
+                                // expected
+                            }
+                            return resource;
+                        });
+            } catch (final Throwable t) {
+                thrown.set(t);
+            }
+            interruptedAfter.set(Thread.currentThread().isInterrupted());
+        });
+        holder.start();
+        mapping.await();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(110));
+        assertEquals(1, reaper.advance());
+        holder.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(holder.isAlive());
+
+        assertTrue(thrown.get() instanceof LeaseExpiredException);
+        assertSame(reported.get(), thrown.get());
+        assertFalse(interruptedAfter.get());
+        assertEquals(1, released.get());
+        assertEquals(1, reaper.getExpiredCount());
+        assertEquals(1, reaper.getInterruptedCount());
+        assertEquals(0, reaper.getReclaimFailureCount());
+        assertEquals(0, reaper.getActiveCount());
+    }
+
+    @Test
+    public void mapperFailureTakesPrecedenceOverExpiry() {
+        final AtomicLong clock = new AtomicLong();
+        final LeaseReaper reaper = LeaseReaper.builder().nanoClock(clock::get).worker(false).reporter(e -> {}).build();
+        final AtomicInteger released = new AtomicInteger();
+        final IllegalStateException failure = new IllegalStateException("mapper failed");
+
+        try {
+            managed("subject", subject -> subject, (subject, resource) -> released.incrementAndGet())
+                    .withLease(reaper, 100, TimeUnit.MILLISECONDS)
+                    .map(resource -> {
+                        // the lease expires whilst mapping, and then the mapper fails
+                        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(110));
+                        assertEquals(1, reaper.advance());
+                        throw failure;
+                    });
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertSame(failure, e);
+            assertEquals(1, e.getSuppressed().length);
+            assertTrue(e.getSuppressed()[0] instanceof LeaseExpiredException);
+        }
+        assertEquals(1, released.get());
+        assertEquals(0, reaper.getActiveCount());
+    }
+
+    @Test
+    public void reclaimErrorStillExpiresTheLease() {
+        final AtomicLong clock = new AtomicLong();
+        final LeaseReaper reaper = LeaseReaper.builder().nanoClock(clock::get).worker(false).reporter(e -> {}).build();
+        final AssertionError reclaimError = new AssertionError("release failed");
+
+        try {
+            managed("subject", subject -> subject, (subject, resource) -> {
+                throw reclaimError;
+            })
+                    .withLease(reaper, 100, TimeUnit.MILLISECONDS)
+                    .map(resource -> {
+                        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(110));
+                        assertEquals(1, reaper.advance());
+                        return resource;
+                    });
+            fail("Expected LeaseExpiredException");
+        } catch (final LeaseExpiredException e) {
+            assertSame(reclaimError, e.getSuppressed()[0]);
+        }
+        assertEquals(1, reaper.getReclaimFailureCount());
+
+        // the reaper still expires later leases
+        try {
+            managed("subject", subject -> subject, (subject, resource) -> {})
+                    .withLease(reaper, 100, TimeUnit.MILLISECONDS)
+                    .map(resource -> {
+                        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(110));
+                        assertEquals(1, reaper.advance());
+                        return resource;
+                    });
+            fail("Expected LeaseExpiredException");
+        } catch (final LeaseExpiredException e) {
+            // expected
+        }
+        assertEquals(2, reaper.getExpiredCount());
+    }
+
+    @Test
+    public void timerWheelSurvivesAnErrorInATask() {
+        final AtomicLong clock = new AtomicLong();
+        final TimerWheel wheel = new TimerWheel("test", 10, 8, clock::get, false);
+        final List<String> ran = new ArrayList<>();
+
+        wheel.schedule(5, () -> {
+            throw new AssertionError("task failed");
+        });
+        wheel.schedule(5, () -> ran.add("after"));
+
+        clock.set(10);
+        assertEquals(2, wheel.advance());
+        assertEquals(1, ran.size());
+        wheel.close();
+    }
+
+    @Test
+    public void expiryPreservesAnInterruptNotMadeByTheReaper() {
+        final AtomicLong clock = new AtomicLong();
+        final LeaseReaper reaper = LeaseReaper.builder().nanoClock(clock::get).worker(false).interrupt(true).reporter(e -> {}).build();
+
+        try {
+            managed("subject", subject -> subject, (subject, resource) -> {})
+                    .withLease(reaper, 100, TimeUnit.MILLISECONDS)
+                    .map(resource -> {
+                        Thread.currentThread().interrupt();
+                        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(110));
+                        assertEquals(1, reaper.advance());
+                        return resource;
+                    });
+            fail("Expected LeaseExpiredException");
+        } catch (final LeaseExpiredException e) {
+            // expected
+        }
+        // also clears the interrupt for subsequent tests
+        assertTrue(Thread.interrupted());
+        assertEquals(0, reaper.getInterruptedCount());
+    }
+
+    @Test
+    public void workerExpiresLeases() throws InterruptedException {
+        final CountDownLatch reported = new CountDownLatch(1);
+        try (final LeaseReaper reaper = LeaseReaper.builder()
+                .tickDuration(1, TimeUnit.MILLISECONDS)
+                .reporter(e -> reported.countDown())
+                .build()) {
+            final AtomicInteger released = new AtomicInteger();
+            try {
+                managed("subject", subject -> subject, (subject, resource) -> released.incrementAndGet())
+                        .withLease(reaper, 5, TimeUnit.MILLISECONDS)
+                        .map(resource -> {
+                            try {
+                                assertTrue(reported.await(10, TimeUnit.SECONDS));
+                            } catch (final InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return resource;
+                        });
+                fail("Expected LeaseExpiredException");
+            } catch (final LeaseExpiredException e) {
+                // expected
+            }
+            assertEquals(1, released.get());
+            assertEquals(1, reaper.getExpiredCount());
+            assertEquals(0, reaper.getInterruptedCount());
+        }
+    }
+}
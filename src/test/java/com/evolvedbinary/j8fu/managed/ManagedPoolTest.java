@@ -0,0 +1,299 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import com.evolvedbinary.j8fu.Either;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.evolvedbinary.j8fu.managed.ManagedResource.managed;
+import static com.evolvedbinary.j8fu.managed.ManagedResourceE.managedE;
+import static com.evolvedbinary.j8fu.managed.ManagedResourceEither.managedEither;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ManagedPoolTest {
+
+    @Test
+    public void reuse() {
+        final AtomicInteger created = new AtomicInteger();
+        try (final ManagedPool<StringBuilder> pool = ManagedPool.builder(() -> {
+            created.incrementAndGet();
+            return new StringBuilder();
+        }).maxSize(2).build()) {
+
+            final StringBuilder first = pool.borrow();
+            pool.release(first);
+            assertSame(first, pool.borrow());
+            final StringBuilder second = pool.borrow();
+            assertNotSame(first, second);
+            assertEquals(2, pool.getBorrowedCount());
+            pool.release(first);
+            pool.release(second);
+
+            assertEquals(2, created.get());
+            assertEquals(2, pool.getSize());
+            assertEquals(2, pool.getIdleCount());
+        }
+    }
+
+    @Test
+    public void minSize() {
+        final AtomicInteger created = new AtomicInteger();
+        try (final ManagedPool<Object> pool = ManagedPool.builder(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }).minSize(3).maxSize(4).build()) {
+            assertEquals(3, created.get());
+            assertEquals(3, pool.getIdleCount());
+        }
+    }
+
+    @Test(expected = PoolExhaustedException.class)
+    public void borrowTimeout() {
+        try (final ManagedPool<Object> pool = ManagedPool.builder(Object::new).maxSize(1).borrowTimeout(10, TimeUnit.MILLISECONDS).build()) {
+            pool.borrow();
+            pool.borrow();
+        }
+    }
+
+    @Test
+    public void validation() {
+        final List<StringBuilder> destroyed = new ArrayList<>();
+        try (final ManagedPool<StringBuilder> pool = ManagedPool.builder(StringBuilder::new)
+                .validator(sb -> sb.length() == 0)
+                .destroyer(destroyed::add)
+                .maxSize(1)
+                .build()) {
+
+            final StringBuilder dirty = pool.borrow();
+            dirty.append("dirty");
+            pool.release(dirty);
+
+            final StringBuilder clean = pool.borrow();
+            assertNotSame(dirty, clean);
+            assertEquals(1, destroyed.size());
+            assertSame(dirty, destroyed.get(0));
+            assertEquals(1, pool.getSize());
+        }
+    }
+
+    @Test
+    public void evictIdle() {
+        final AtomicLong clock = new AtomicLong();
+        final List<Object> destroyed = new ArrayList<>();
+        try (final ManagedPool<Object> pool = ManagedPool.builder(Object::new)
+                .minSize(1)
+                .maxSize(3)
+                .maxIdle(10, TimeUnit.NANOSECONDS)
+                .destroyer(destroyed::add)
+                .nanoClock(clock::get)
+                .build()) {
+
+            final Object a = pool.borrow();
+            final Object b = pool.borrow();
+            final Object c = pool.borrow();
+            pool.release(a);
+            pool.release(b);
+            clock.set(5);
+            pool.release(c);
+
+            // a and b have been idle for longer than maxIdle
+            clock.set(11);
+            assertEquals(2, pool.evictIdle());
+            assertEquals(2, destroyed.size());
+            assertTrue(destroyed.contains(a));
+            assertTrue(destroyed.contains(b));
+            assertEquals(1, pool.getSize());
+
+            // c is kept as the pool is at its minimum size
+            clock.set(100);
+            assertEquals(0, pool.evictIdle());
+            assertSame(c, pool.borrow());
+        }
+    }
+
+    @Test
+    public void closeDestroysIdleAndReturned() {
+        final List<Object> destroyed = new ArrayList<>();
+        final ManagedPool<Object> pool = ManagedPool.builder(Object::new).maxSize(2).destroyer(destroyed::add).build();
+        final Object a = pool.borrow();
+        final Object b = pool.borrow();
+        pool.release(a);
+
+        pool.close();
+        assertEquals(1, destroyed.size());
+        pool.release(b);
+        assertEquals(2, destroyed.size());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void releaseNullIsNoOp() {
+        try (final ManagedPool<Object> pool = ManagedPool.builder(Object::new).maxSize(1).build()) {
+            pool.release(null);
+            assertEquals(0, pool.getBorrowedCount());
+        }
+    }
+
+    @Test
+    public void releaseNotBorrowedIsRejected() {
+        try (final ManagedPool<Object> pool = ManagedPool.builder(Object::new).maxSize(1).build()) {
+            final Object a = pool.borrow();
+            pool.release(a);
+            try {
+                pool.release(a);
+                fail("expected IllegalArgumentException");
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                pool.release(new Object());
+                fail("expected IllegalArgumentException");
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+
+            // the pool has not grown beyond its maximum size
+            assertEquals(0, pool.getBorrowedCount());
+            assertSame(a, pool.borrow());
+            assertEquals(1, pool.getBorrowedCount());
+        }
+    }
+
+    @Test
+    public void failedBorrowDispatchesAsyncWaiters() {
+        final AtomicReference<ManagedPool<Object>> poolRef = new AtomicReference<>();
+        final AtomicReference<CompletableFuture<Object>> waiter = new AtomicReference<>();
+        final AtomicInteger created = new AtomicInteger();
+        try (final ManagedPool<Object> pool = ManagedPool.builder(() -> {
+            if (created.getAndIncrement() == 0) {
+                // queued whilst the failing borrow holds the only permit
+                waiter.set(poolRef.get().borrowAsync());
+                throw new IllegalStateException("factory failed");
+            }
+            return new Object();
+        }).maxSize(1).build()) {
+            poolRef.set(pool);
+            try {
+                pool.borrow();
+                fail("expected IllegalStateException");
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+
+            assertTrue(waiter.get().isDone());
+            assertEquals(1, pool.getBorrowedCount());
+            pool.release(waiter.get().join());
+        }
+    }
+
+    @Test
+    public void leakedCapacityIsRecovered() throws InterruptedException {
+        try (final ManagedPool<Object> pool = ManagedPool.builder(Object::new).maxSize(1)
+                .borrowTimeout(10, TimeUnit.MILLISECONDS).build()) {
+            // leaked, i.e. never returned
+            pool.borrow();
+
+            Object borrowed = null;
+            for (int i = 0; i < 50 && borrowed == null; i++) {
+                System.gc();
+                Thread.sleep(10);
+                try {
+                    borrowed = pool.borrow();
+                } catch (final PoolExhaustedException e) {
+                    // not yet collected
+                }
+            }
+            assertNotNull(borrowed);
+            assertEquals(1, pool.getSize());
+            pool.release(borrowed);
+        }
+    }
+
+    @Test
+    public void managedResources() throws Exception {
+        try (final ManagedPool<StringBuilder> pool = ManagedPool.builder(StringBuilder::new).maxSize(1).build()) {
+            assertEquals("a", managed(pool, ManagedPool::borrow, ManagedPool::release).map(sb -> sb.append("a").toString()));
+            assertEquals(0, pool.getBorrowedCount());
+
+            assertEquals("ab", managedE(pool, ManagedPool::borrow, ManagedPool::release).map(sb -> sb.append("b").toString()));
+            assertEquals(0, pool.getBorrowedCount());
+
+            final Either<List<Exception>, String> result = managedEither(pool, ManagedPool::borrow, ManagedPool::release).map(sb -> sb.append("c").toString());
+            assertEquals("abc", result.right().get());
+            assertEquals(0, pool.getBorrowedCount());
+        }
+    }
+
+    @Test
+    public void concurrentBorrowRelease() throws Exception {
+        final int threads = 8;
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        try (final ManagedPool<Object> pool = ManagedPool.builder(Object::new).maxSize(3).build()) {
+            final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+            try {
+                final List<Future<?>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    results.add(executorService.submit(() -> {
+                        for (int i = 0; i < 1_000; i++) {
+                            managed(pool, ManagedPool::borrow, ManagedPool::release).map(object -> {
+                                maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                                inUse.decrementAndGet();
+                                return object;
+                            });
+                        }
+                    }));
+                }
+                for (final Future<?> result : results) {
+                    result.get();
+                }
+            } finally {
+                executorService.shutdown();
+            }
+
+            assertTrue(maxInUse.get() <= 3);
+            assertTrue(pool.getSize() <= 3);
+            assertEquals(0, pool.getBorrowedCount());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.evolvedbinary.j8fu.managed.ManagedResource.all;
+import static com.evolvedbinary.j8fu.managed.ManagedResource.managed;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ManagedResourceAllTest {
+
+    @Test
+    public void acquiresInCanonicalOrderAndReleasesInReverse() {
+        final List<String> events = new ArrayList<>();
+
+        final String result = all(
+                recording("c", events),
+                recording("a", events),
+                recording("b", events)
+        ).ordered(Comparator.naturalOrder()).map(resources -> String.join(",", resources));
+
+        // resources are given to the mapper in the order that they were given to all
+        assertEquals("C,A,B", result);
+        assertEquals(Arrays.asList("acquire a", "acquire b", "acquire c", "release c", "release b", "release a"), events);
+    }
+
+    @Test
+    public void opposingOrdersDoNotDeadlock() throws InterruptedException {
+        final ReentrantLock first = new ReentrantLock();
+        final ReentrantLock second = new ReentrantLock();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        final Thread forwards = new Thread(() -> lockRepeatedly(first, second, failure));
+        final Thread backwards = new Thread(() -> lockRepeatedly(second, first, failure));
+        forwards.start();
+        backwards.start();
+        forwards.join(TimeUnit.SECONDS.toMillis(30));
+        backwards.join(TimeUnit.SECONDS.toMillis(30));
+
+        assertFalse("deadlocked", forwards.isAlive() || backwards.isAlive());
+        assertNull(failure.get());
+        assertFalse(first.isLocked());
+        assertFalse(second.isLocked());
+    }
+
+    @Test
+    public void tryAcquireReleasesAndTimesOut() throws InterruptedException {
+        final ReentrantLock free = new ReentrantLock();
+        final ReentrantLock busy = new ReentrantLock();
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread holder = new Thread(() -> {
+            busy.lock();
+            try {
+                locked.countDown();
+                done.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                busy.unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+
+        try {
+            all(tryLock(free), tryLock(busy))
+                    .tryAcquire(50, TimeUnit.MILLISECONDS)
+                    .backoff(1, 5, TimeUnit.MILLISECONDS)
+                    .map(locks -> {
+                        fail("Should not have acquired all of the locks");
+                        return null;
+                    });
+            fail("Expected ResourceUnavailableException");
+        } catch (final ResourceUnavailableException e) {
+            // expected
+        }
+        assertFalse(free.isLocked());
+
+        done.countDown();
+        holder.join();
+
+        final int count = all(tryLock(free), tryLock(busy))
+                .tryAcquire(1, TimeUnit.SECONDS)
+                .map(List::size);
+        assertEquals(2, count);
+        assertFalse(free.isLocked());
+        assertFalse(busy.isLocked());
+    }
+
+    @Test
+    public void acquisitionFailureReleasesAcquired() {
+        final List<String> events = new ArrayList<>();
+        final ManagedResource<String, String> failing = managed("b", subject -> {
+            throw new IllegalStateException("unavailable");
+        }, (subject, resource) -> events.add("release " + subject));
+
+        try {
+            all(recording("a", events), failing, recording("c", events))
+                    .ordered(Comparator.naturalOrder())
+                    .map(resources -> resources);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals(Arrays.asList("acquire a", "release a"), events);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateSubjectIsRejected() {
+        final List<String> events = new ArrayList<>();
+        final String subject = "a";
+        all(recording(subject, events), recording(subject, events));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void leasedResourceIsRejected() {
+        try (final LeaseReaper reaper = LeaseReaper.builder().worker(false).build()) {
+            all(recording("a", new ArrayList<>()).withLease(reaper, 1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void metricsAreRecorded() {
+        final ResourceMetrics metrics = new ResourceMetrics();
+        final ManagedResource<String, String> measured = managed("b", String::toUpperCase, (subject, resource) -> {}, metrics);
+
+        assertEquals(2, (int) all(recording("a", new ArrayList<>()), measured).map(List::size));
+        assertEquals(1, metrics.getWaitTime().snapshot().getCount());
+        assertEquals(1, metrics.getHoldTime().snapshot().getCount());
+    }
+
+    private static ManagedResource<String, String> recording(final String name, final List<String> events) {
+        return managed(name, subject -> {
+            events.add("acquire " + subject);
+            return subject.toUpperCase();
+        }, (subject, resource) -> events.add("release " + subject));
+    }
+
+    private static ManagedResource<ReentrantLock, ReentrantLock> tryLock(final ReentrantLock lock) {
+        return managed(lock, l -> {
+            l.lock();
+            return l;
+        }, (l, resource) -> l.unlock())
+                .withTryAcquire(l -> l.tryLock() ? Optional.of(l) : Optional.empty());
+    }
+
+    private static void lockRepeatedly(final ReentrantLock a, final ReentrantLock b, final AtomicReference<Throwable> failure) {
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                all(lock(a), lock(b)).map(locks -> locks.size());
+            }
+        } catch (final Throwable t) {
+            failure.set(t);
+        }
+    }
+
+    private static ManagedResource<ReentrantLock, ReentrantLock> lock(final ReentrantLock lock) {
+        return managed(lock, l -> {
+            l.lock();
+            return l;
+        }, (l, resource) -> l.unlock());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import com.evolvedbinary.j8fu.managed.ResourceLeakDetector.DetectionLevel;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.evolvedbinary.j8fu.managed.ManagedResource.managed;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceLeakDetectorTest {
+
+    @Test
+    public void parseLevel() {
+        assertEquals(DetectionLevel.DISABLED, ResourceLeakDetector.parseLevel(null));
+        assertEquals(DetectionLevel.PARANOID, ResourceLeakDetector.parseLevel("paranoid"));
+        assertEquals(DetectionLevel.SIMPLE, ResourceLeakDetector.parseLevel(" Simple "));
+        assertEquals(DetectionLevel.DISABLED, ResourceLeakDetector.parseLevel("unknown"));
+    }
+
+    @Test
+    public void disabledTracksNothing() {
+        final ResourceLeakDetector<Object> detector = new ResourceLeakDetector<>("test", DetectionLevel.DISABLED, 1, null);
+        final Object resource = new Object();
+        assertFalse(detector.track(resource));
+        assertFalse(detector.untrack(resource));
+    }
+
+    @Test
+    public void releasedIsNotALeak() throws InterruptedException {
+        final List<ResourceLeak> leaks = new CopyOnWriteArrayList<>();
+        final ResourceLeakDetector<Object> detector = new ResourceLeakDetector<>("test", DetectionLevel.PARANOID, 1, leaks::add);
+        for (int i = 0; i < 100; i++) {
+            final Object resource = new Object();
+            assertTrue(detector.track(resource));
+            assertTrue(detector.untrack(resource));
+        }
+
+        awaitCollection(detector, leaks, 1);
+        assertTrue(leaks.isEmpty());
+    }
+
+    @Test
+    public void reportsLeakWithTrace() throws InterruptedException {
+        final List<ResourceLeak> leaks = new CopyOnWriteArrayList<>();
+        final ResourceLeakDetector<Object> detector = new ResourceLeakDetector<>("test", DetectionLevel.PARANOID, 1, leaks::add);
+        detector.track(new StringBuilder("leaked"));
+
+        awaitCollection(detector, leaks, 1);
+        assertEquals(1, leaks.size());
+        assertEquals(1, detector.getLeakCount());
+        assertEquals(StringBuilder.class.getName(), leaks.get(0).getResourceType());
+        assertNotNull(leaks.get(0).getAcquisitionTrace());
+    }
+
+    @Test
+    public void simpleHasNoTrace() throws InterruptedException {
+        final List<ResourceLeak> leaks = new CopyOnWriteArrayList<>();
+        final ResourceLeakDetector<Object> detector = new ResourceLeakDetector<>("test", DetectionLevel.SIMPLE, 1, leaks::add);
+        detector.track(new Object());
+
+        awaitCollection(detector, leaks, 1);
+        assertEquals(1, leaks.size());
+        assertNull(leaks.get(0).getAcquisitionTrace());
+    }
+
+    @Test
+    public void sampling() {
+        final ResourceLeakDetector<Object> detector = new ResourceLeakDetector<>("test", DetectionLevel.ADVANCED, 16, null);
+        int trackedCount = 0;
+        for (int i = 0; i < 16_000; i++) {
+            final Object resource = new Object();
+            if (detector.track(resource)) {
+                trackedCount++;
+                detector.untrack(resource);
+            }
+        }
+        assertTrue(trackedCount > 500 && trackedCount < 1_500);
+    }
+
+    @Test
+    public void poolLeak() throws InterruptedException {
+        final List<ResourceLeak> leaks = new CopyOnWriteArrayList<>();
+        final ResourceLeakDetector<Object> detector = new ResourceLeakDetector<>("pool", DetectionLevel.PARANOID, 1, leaks::add);
+        try (final ManagedPool<Object> pool = ManagedPool.builder(Object::new).maxSize(2).leakDetector(detector).build()) {
+            // released properly
+            managed(pool, ManagedPool::borrow, ManagedPool::release).map(Object::hashCode);
+
+            // leaked, i.e. never released
+            pool.borrow();
+            pool.close();
+
+            awaitCollection(detector, leaks, 1);
+            assertEquals(1, leaks.size());
+            assertEquals("pool", leaks.get(0).getDetectorName());
+        }
+    }
+
+    private static void awaitCollection(final ResourceLeakDetector<?> detector, final List<ResourceLeak> leaks,
+            final int expectedLeaks) throws InterruptedException {
+        for (int i = 0; i < 50 && leaks.size() < expectedLeaks; i++) {
+            System.gc();
+            Thread.sleep(10);
+            detector.reportLeaks();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2016, Evolved Binary Ltd. <tech@evolvedbinary.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.evolvedbinary.j8fu.managed;
+
+import com.evolvedbinary.j8fu.Either;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.evolvedbinary.j8fu.managed.ResourceScope.scoped;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResourceScopeTest {
+
+    @Test
+    public void releasesInReverseOrder() {
+        final List<String> released = new ArrayList<>();
+
+        final Either<List<Exception>, Integer> result = scoped(scope -> {
+            // more than the initial capacity, so the stack grows
+            for (int i = 0; i < 20; i++) {
+                scope.acquire(i, id -> "r" + id, (id, resource) -> released.add(resource));
+            }
+            scope.register(() -> released.add("closeable"));
+            return scope.size();
+        });
+
+        assertEquals(21, (int) result.right().get());
+        assertEquals(21, released.size());
+        assertEquals("closeable", released.get(0));
+        assertEquals("r19", released.get(1));
+        assertEquals("r0", released.get(20));
+    }
+
+    @Test
+    public void releaseFailuresAreAggregated() {
+        final List<String> released = new ArrayList<>();
+        final IOException first = new IOException("first");
+        final IllegalStateException second = new IllegalStateException("second");
+        final IllegalArgumentException body = new IllegalArgumentException("body");
+
+        final Either<List<Exception>, String> result = scoped(scope -> {
+            scope.register("a", "A", (subject, resource) -> released.add(resource));
+            scope.register("b", "B", (subject, resource) -> {
+                throw first;
+            });
+            scope.register("c", "C", (subject, resource) -> released.add(resource));
+            scope.register("d", "D", (subject, resource) -> {
+                throw second;
+            });
+            throw body;
+        });
+
+        assertTrue(result.isLeft());
+        assertEquals(Arrays.asList(body, second, first), result.left().get());
+        assertEquals(Arrays.asList("C", "A"), released);
+    }
+
+    @Test
+    public void failedAcquisitionIsNotRegistered() {
+        final ResourceScope scope = new ResourceScope(1);
+        try {
+            scope.acquire("subject", subject -> {
+                throw new IOException("unavailable");
+            }, (subject, resource) -> fail("Should not be released"));
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            // expected
+        }
+        assertEquals(0, scope.size());
+        assertTrue(scope.release().isEmpty());
+    }
+
+    @Test
+    public void closeThrowsFirstFailure() {
+        final IOException first = new IOException("first");
+        final IOException second = new IOException("second");
+
+        try (final ResourceScope scope = new ResourceScope()) {
+            scope.register(() -> {
+                throw second;
+            });
+            scope.register(() -> {
+                throw first;
+            });
+        } catch (final Exception e) {
+            assertSame(first, e);
+            assertSame(second, e.getSuppressed()[0]);
+            return;
+        }
+        fail("Expected IOException");
+    }
+
+    @Test
+    public void closeDoesNotSuppressTheSameFailure() {
+        final IOException failure = new IOException("failure");
+
+        try (final ResourceScope scope = new ResourceScope()) {
+            scope.register(() -> {
+                throw failure;
+            });
+            scope.register(() -> {
+                throw failure;
+            });
+        } catch (final Exception e) {
+            assertSame(failure, e);
+            assertEquals(0, e.getSuppressed().length);
+            return;
+        }
+        fail("Expected IOException");
+    }
+}